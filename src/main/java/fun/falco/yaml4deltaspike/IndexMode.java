@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+/**
+ * How lists are converted to flattened properties.
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @since 1.4.0
+ */
+public enum IndexMode {
+
+    /**
+     * Lists are converted to a single comma separated value, and the
+     * properties of lists of maps are merged into comma separated values.
+     */
+    NONE,
+
+    /**
+     * Lists of maps are converted to indexed properties, appended with [i],
+     * while other lists are still converted to a single comma separated value.
+     */
+    MAPS,
+
+    /**
+     * All lists, including lists of scalars and nested lists, are converted to
+     * indexed properties appended with [i], with the length of each list
+     * available as <code>key.size</code>.
+     *
+     * <p>Scalar elements are stored once per list as an array, so looking up
+     * an element is a constant time operation.</p>
+     *
+     * @see IndexedProperties
+     */
+    FULL;
+
+    /**
+     * @param indexed If lists of maps should be converted to indexed properties.
+     * @return {@link #MAPS} if indexed, otherwise {@link #NONE}.
+     */
+    public static IndexMode of(final boolean indexed) {
+        return (indexed) ? MAPS : NONE;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable flattened properties created with {@link IndexMode#FULL}, that
+ * store the scalar elements of each list once as an array, rather than as a
+ * separate entry for each element.
+ *
+ * <p>Looking up an element such as <code>application.prefixes[1]</code>
+ * indexes the array of <code>application.prefixes</code> directly, and the
+ * length of the list is available as <code>application.prefixes.size</code>.
+ * Iterating the entries still returns an entry for each element.</p>
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @since 1.4.0
+ */
+public final class IndexedProperties extends AbstractMap<String, String> {
+
+    /**
+     * Elements of a list without any scalar elements, whose length is only
+     * stored as <code>key.size</code>.
+     */
+    static final String[] NO_SCALARS = new String[0];
+
+    /** Properties that aren't scalar elements of a list. */
+    private final Map<String, String> scalars;
+
+    /**
+     * Scalar elements of each list by key, null where not a scalar, or
+     * {@link #NO_SCALARS}.
+     */
+    private final Map<String, String[]> lists;
+
+    /** Total number of entries, including each list element. */
+    private final int size;
+
+    /**
+     * @see #entrySet()
+     */
+    private Set<Entry<String, String>> entries;
+
+    /**
+     * @param scalars Properties that aren't scalar elements of a list.
+     * @param lists
+     *     Scalar elements of each list by key, null where not a scalar, or
+     *     {@link #NO_SCALARS}.
+     */
+    IndexedProperties(final Map<String, String> scalars, final Map<String, String[]> lists) {
+        this.scalars = Map.copyOf(scalars);
+        this.lists = Map.copyOf(lists);
+
+        int count = this.scalars.size();
+
+        for (final String[] elements : this.lists.values()) {
+            for (final String element : elements) {
+                if (element != null) {
+                    count++;
+                }
+            }
+        }
+
+        this.size = count;
+    }
+
+    /**
+     * @param key Fully qualified name of a list.
+     * @return
+     *     Unmodifiable view of the scalar elements of the list, with null
+     *     where an element isn't a scalar, or null if the key isn't a list.
+     */
+    public List<String> getList(final String key) {
+        final String[] elements = lists.get(key);
+
+        if (elements == null) {
+            return null;
+        }
+
+        if (elements == NO_SCALARS) {
+            return Collections.nCopies(Integer.parseInt(scalars.get(key + ".size")), null);
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(elements));
+    }
+
+    @Override
+    public String get(final Object key) {
+        if (key == null) {
+            return null;
+        }
+
+        final String value = scalars.get(key);
+
+        if (value != null || !(key instanceof String)) {
+            return value;
+        }
+
+        final String k = (String) key;
+        final int end = k.length() - 1;
+
+        if (end < 0 || k.charAt(end) != ']') {
+            return null;
+        }
+
+        final int start = k.lastIndexOf('[');
+
+        if (start < 0 || start + 1 == end) {
+            return null;
+        }
+
+        final String[] elements = lists.get(k.substring(0, start));
+
+        if (elements == null || (k.charAt(start + 1) == '0' && start + 2 != end)) {
+            return null;
+        }
+
+        int index = 0;
+
+        for (int i = start + 1; i < end; i++) {
+            final char c = k.charAt(i);
+
+            if (c < '0' || c > '9' || index >= elements.length) {
+                return null;
+            }
+
+            index = index * 10 + (c - '0');
+        }
+
+        return (index < elements.length) ? elements[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (entries == null) {
+            entries = new AbstractSet<>() {
+
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        return entries;
+    }
+
+    /**
+     * Iterates all scalars, followed by each element of each list.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, String>> {
+
+        /** Remaining scalars. */
+        private final Iterator<Entry<String, String>> scalarIterator = scalars.entrySet().iterator();
+
+        /** Remaining lists. */
+        private final Iterator<Entry<String, String[]>> listIterator = lists.entrySet().iterator();
+
+        /** List currently being iterated, or null. */
+        private Entry<String, String[]> list;
+
+        /** Index of the next element of the current list to check. */
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+            if (scalarIterator.hasNext()) {
+                return true;
+            }
+
+            while (true) {
+                if (list != null) {
+                    final String[] elements = list.getValue();
+
+                    while (index < elements.length && elements[index] == null) {
+                        index++;
+                    }
+
+                    if (index < elements.length) {
+                        return true;
+                    }
+                }
+
+                if (!listIterator.hasNext()) {
+                    return false;
+                }
+
+                list = listIterator.next();
+                index = 0;
+            }
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            if (scalarIterator.hasNext()) {
+                return scalarIterator.next();
+            }
+
+            final String key = list.getKey() + "[" + index + "]";
+            return new SimpleImmutableEntry<>(key, list.getValue()[index++]);
+        }
+    }
+}
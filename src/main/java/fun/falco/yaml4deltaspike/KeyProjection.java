@@ -0,0 +1,427 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Set of key patterns that limits which properties are flattened, so that
+ * subtrees of the configuration that no pattern can match are skipped without
+ * descending into them.
+ *
+ * <p>Patterns may be literal keys such as <code>application.name</code>,
+ * prefixes such as <code>application.database.*</code> which match all keys
+ * under them, and may contain indices such as
+ * <code>application.messages[0].source</code>, or
+ * <code>application.messages[*].source</code> to match any index.</p>
+ *
+ * <p>When lists aren't indexed, index segments match the list itself, so
+ * <code>application.messages[*].source</code> matches
+ * <code>application.messages.source</code>. A pattern naming a list, such
+ * as <code>application.messages</code>, matches everything under each of its
+ * elements, whether they're scalars, maps, or lists, so the whole list is kept
+ * in every {@link IndexMode}.</p>
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @since 1.4.0
+ */
+public final class KeyProjection {
+
+    /** Node that matches itself and everything under it. */
+    private static final Node EVERYTHING = new Node();
+
+    static {
+        EVERYTHING.terminal = true;
+        EVERYTHING.prefix = true;
+    }
+
+    /** State that matches everything, used for {@link #ALL}. */
+    private static final State EVERYTHING_STATE = new State(List.of(EVERYTHING));
+
+    /** Projection that matches all keys. */
+    public static final KeyProjection ALL = new KeyProjection(null);
+
+    /** Normalized patterns, or null if this matches all keys. */
+    private final Set<String> patterns;
+
+    /** Root of the compiled patterns. */
+    private final Node root;
+
+    /**
+     * @param patterns Normalized patterns, or null to match all keys.
+     */
+    private KeyProjection(final Set<String> patterns) {
+        this.patterns = patterns;
+
+        if (patterns == null) {
+            this.root = EVERYTHING;
+            return;
+        }
+
+        this.root = new Node();
+
+        for (final String pattern : patterns) {
+            compile(pattern);
+        }
+    }
+
+    /**
+     * @param patterns Key patterns to match.
+     * @return Projection that only matches the given patterns.
+     * @throws IllegalArgumentException If a pattern is empty or malformed.
+     * @throws NullPointerException If patterns, or any pattern, is null.
+     */
+    public static KeyProjection of(final Collection<String> patterns) {
+        final Set<String> normalized = new TreeSet<>();
+
+        for (final String pattern : patterns) {
+            normalized.add(pattern.trim());
+        }
+
+        return new KeyProjection(Collections.unmodifiableSet(normalized));
+    }
+
+    /**
+     * @return Patterns this projection matches, or null if it matches all keys.
+     */
+    public Set<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * @param key Fully qualified property name, as flattened with indexed keys.
+     * @return If the property would be kept by this projection.
+     */
+    public boolean matches(final String key) {
+        State state = root();
+
+        for (final String segment : split(key)) {
+            if (state == null) {
+                return false;
+            }
+
+            if (segment.charAt(0) == '[') {
+                if (!segment.matches("\\[\\d+]")) {
+                    return false;
+                }
+
+                state = state.element(Integer.parseInt(segment.substring(1, segment.length() - 1)));
+            } else {
+                state = state.child(segment);
+            }
+        }
+
+        return state != null && state.matches();
+    }
+
+    /**
+     * @param keys
+     *     Literal keys to match as well, keys that aren't valid patterns are
+     *     ignored.
+     * @return Projection that matches these patterns, and the given keys.
+     */
+    KeyProjection including(final Collection<String> keys) {
+        if (patterns == null) {
+            return this;
+        }
+
+        final Set<String> normalized = new TreeSet<>(patterns);
+
+        for (final String key : keys) {
+            final String k = key.trim();
+
+            try {
+                new KeyProjection(Set.of(k));
+            } catch (IllegalArgumentException ex) {
+                continue;
+            }
+
+            normalized.add(k);
+        }
+
+        return new KeyProjection(Collections.unmodifiableSet(normalized));
+    }
+
+    /**
+     * @return State before any keys have been visited.
+     */
+    State root() {
+        return (patterns == null) ? EVERYTHING_STATE : new State(List.of(root));
+    }
+
+    /**
+     * @param pattern Pattern to add to the compiled patterns.
+     */
+    private void compile(final String pattern) {
+        final List<String> segments = split(pattern);
+
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Key patterns must not be empty.");
+        }
+
+        Node node = root;
+
+        for (int i = 0; i < segments.size(); i++) {
+            final String segment = segments.get(i);
+
+            if (segment.equals("*")) {
+                if (i != segments.size() - 1) {
+                    throw new IllegalArgumentException("Wildcards are only supported at the end of a pattern: " + pattern);
+                }
+
+                node.prefix = true;
+                return;
+            }
+
+            if (segment.equals("[*]")) {
+                if (node.anyIndex == null) {
+                    node.anyIndex = new Node();
+                }
+
+                node = node.anyIndex;
+            } else {
+                if (segment.charAt(0) == '[' && !segment.matches("\\[\\d+]")) {
+                    throw new IllegalArgumentException("Indices must be a number or *: " + pattern);
+                }
+
+                node = node.children.computeIfAbsent(segment, (k) -> new Node());
+            }
+        }
+
+        node.terminal = true;
+    }
+
+    /**
+     * @param key Key or pattern, such as <code>a.b[0][*].c</code>.
+     * @return
+     *     Segments of the key, such as <code>a</code>, <code>b</code>,
+     *     <code>[0]</code>, <code>[*]</code>, and <code>c</code>.
+     * @throws IllegalArgumentException If the key has unbalanced brackets.
+     */
+    private static List<String> split(final String key) {
+        final List<String> segments = new ArrayList<>();
+
+        for (final String part : key.split("\\.")) {
+            int bracket = part.indexOf('[');
+
+            if (bracket < 0) {
+                if (!part.isEmpty()) {
+                    segments.add(part);
+                }
+
+                continue;
+            }
+
+            if (bracket > 0) {
+                segments.add(part.substring(0, bracket));
+            }
+
+            while (bracket >= 0) {
+                final int end = part.indexOf(']', bracket);
+
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed index in key: " + key);
+                }
+
+                segments.add(part.substring(bracket, end + 1));
+                bracket = part.indexOf('[', end);
+            }
+        }
+
+        return segments;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof KeyProjection)) {
+            return false;
+        }
+
+        final Set<String> other = ((KeyProjection) o).patterns;
+        return (patterns == null) ? other == null : patterns.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return (patterns == null) ? 0 : patterns.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return (patterns == null) ? "KeyProjection[*]" : "KeyProjection" + patterns;
+    }
+
+    /**
+     * Node of the compiled patterns.
+     */
+    private static final class Node {
+
+        /** Named children, and children for specific indices such as [0]. */
+        private final Map<String, Node> children = new HashMap<>();
+
+        /** Child for any index, [*]. */
+        private Node anyIndex;
+
+        /** If a pattern ends at this node. */
+        private boolean terminal;
+
+        /** If a pattern matches everything under this node. */
+        private boolean prefix;
+    }
+
+    /**
+     * Set of pattern nodes that could match the keys visited so far, while
+     * walking the configuration.
+     */
+    static final class State {
+
+        /** Nodes that could still match. */
+        private final List<Node> nodes;
+
+        /**
+         * @param nodes Nodes that could still match.
+         */
+        private State(final List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        /**
+         * @param key Name of a child in the configuration, may contain dots.
+         * @return State of the child, or null if nothing under it can match.
+         */
+        State child(final String key) {
+            if (this == EVERYTHING_STATE) {
+                return this;
+            }
+
+            if (key.indexOf('.') < 0) {
+                return step(key);
+            }
+
+            State state = this;
+
+            for (final String part : key.split("\\.")) {
+                if (part.isEmpty()) {
+                    continue;
+                }
+
+                state = state.step(part);
+
+                if (state == null) {
+                    return null;
+                }
+            }
+
+            return state;
+        }
+
+        /**
+         * @param name Name of a child in the configuration, without dots.
+         * @return State of the child, or null if nothing under it can match.
+         */
+        private State step(final String name) {
+            final List<Node> next = new ArrayList<>(2);
+
+            for (final Node node : nodes) {
+                add(next, node.prefix ? EVERYTHING : null);
+                add(next, node.children.get(name));
+            }
+
+            return (next.isEmpty()) ? null : new State(next);
+        }
+
+        /**
+         * @param index Index of an element in a list.
+         * @return State of the element, or null if nothing under it can match.
+         */
+        State element(final int index) {
+            if (this == EVERYTHING_STATE) {
+                return this;
+            }
+
+            final List<Node> next = new ArrayList<>(2);
+
+            for (final Node node : nodes) {
+                add(next, (node.prefix || node.terminal) ? EVERYTHING : null);
+                add(next, node.children.get("[" + index + "]"));
+                add(next, node.anyIndex);
+            }
+
+            return (next.isEmpty()) ? null : new State(next);
+        }
+
+        /**
+         * @return
+         *     State of all elements of a list that isn't indexed, or null if
+         *     nothing under it can match.
+         */
+        State elements() {
+            if (this == EVERYTHING_STATE) {
+                return this;
+            }
+
+            final List<Node> next = new ArrayList<>(nodes);
+
+            for (final Node node : nodes) {
+                add(next, (node.terminal) ? EVERYTHING : null);
+                add(next, node.anyIndex);
+
+                node.children.forEach((key, child) -> {
+                    if (key.charAt(0) == '[') {
+                        add(next, child);
+                    }
+                });
+            }
+
+            return new State(next);
+        }
+
+        /**
+         * @return If a property at this state should be kept.
+         */
+        boolean matches() {
+            for (final Node node : nodes) {
+                if (node.terminal) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * @param nodes Nodes to add to.
+         * @param node Node to add if it's not null or already added.
+         */
+        private static void add(final List<Node> nodes, final Node node) {
+            if (node != null && !nodes.contains(node)) {
+                nodes.add(node);
+            }
+        }
+    }
+}
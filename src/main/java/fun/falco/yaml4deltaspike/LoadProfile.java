@@ -0,0 +1,343 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times each phase of loading a {@link YamlConfigSource}, and reports it as
+ * JFR events and a summary log line once the source has loaded.
+ *
+ * <p>Profiling is enabled with the system property
+ * <code>yaml4deltaspike.profile=true</code>. When it's disabled, all sources
+ * share a single instance that does nothing, so no time is measured and no
+ * events are created.</p>
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @since 1.4.0
+ */
+final class LoadProfile {
+
+    /** System property that enables profiling. */
+    static final String PROPERTY = "yaml4deltaspike.profile";
+
+    /** Logging with slf4j. */
+    private static final Logger logger = LoggerFactory.getLogger(LoadProfile.class);
+
+    /** If profiling was enabled when the class was loaded. */
+    private static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    /** Instance shared by all sources when profiling is disabled. */
+    private static final LoadProfile DISABLED = new LoadProfile(null);
+
+    /** Name of the configuration, or null if profiling is disabled. */
+    private final String configName;
+
+    /** Time the load began. */
+    private final long start;
+
+    /** JFR event spanning the whole load, or null if disabled. */
+    private final YamlLoadEvent event;
+
+    /** Time spent in each phase, by the ordinal of the phase. */
+    private final long[] times = new long[Phase.values().length];
+
+    /** Phase currently being timed, or null. */
+    private Phase phase;
+
+    /** Time the current phase began. */
+    private long phaseStart;
+
+    /** JFR event of the current phase. */
+    private YamlLoadPhaseEvent phaseEvent;
+
+    /** Size of the configuration that was read. */
+    private long bytes;
+
+    /** Number of nodes in the parsed YAML tree. */
+    private long nodes;
+
+    /** If the configuration didn't need to be parsed. */
+    private boolean cached = true;
+
+    /**
+     * @param configName Name of the configuration, or null if disabled.
+     */
+    LoadProfile(final String configName) {
+        this.configName = configName;
+
+        if (configName == null) {
+            this.start = 0;
+            this.event = null;
+            return;
+        }
+
+        this.start = System.nanoTime();
+        this.event = new YamlLoadEvent();
+        this.event.begin();
+    }
+
+    /**
+     * @param configName Name of the configuration being loaded.
+     * @return
+     *     New profile if profiling is enabled, otherwise a shared instance
+     *     that does nothing.
+     */
+    static LoadProfile start(final String configName) {
+        return (ENABLED) ? new LoadProfile(configName) : DISABLED;
+    }
+
+    /**
+     * @return Shared instance that does nothing.
+     */
+    static LoadProfile disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param phase Phase that is beginning, ending the current phase if any.
+     */
+    void begin(final Phase phase) {
+        if (configName == null) {
+            return;
+        }
+
+        end();
+
+        if (phase == Phase.PARSE) {
+            cached = false;
+        }
+
+        this.phase = phase;
+        this.phaseEvent = new YamlLoadPhaseEvent();
+        this.phaseEvent.begin();
+        this.phaseStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    void end() {
+        if (configName == null || phase == null) {
+            return;
+        }
+
+        times[phase.ordinal()] += System.nanoTime() - phaseStart;
+        phaseEvent.end();
+
+        if (phaseEvent.shouldCommit()) {
+            phaseEvent.configName = configName;
+            phaseEvent.phase = phase.getLabel();
+            phaseEvent.commit();
+        }
+
+        phase = null;
+        phaseEvent = null;
+    }
+
+    /**
+     * @param content Raw bytes of the configuration that was read.
+     */
+    void read(final byte[] content) {
+        if (configName != null) {
+            bytes = content.length;
+        }
+    }
+
+    /**
+     * @param inputStream Stream the configuration is read from, or null.
+     * @return
+     *     Stream that counts the bytes read from it, or the same stream if
+     *     profiling is disabled.
+     */
+    InputStream count(final InputStream inputStream) {
+        if (configName == null || inputStream == null) {
+            return inputStream;
+        }
+
+        return new FilterInputStream(inputStream) {
+
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+
+                if (b != -1) {
+                    bytes++;
+                }
+
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                final int read = super.read(buffer, offset, length);
+
+                if (read > 0) {
+                    bytes += read;
+                }
+
+                return read;
+            }
+
+            @Override
+            public long skip(final long n) throws IOException {
+                final long skipped = super.skip(n);
+                bytes += skipped;
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * @param tree Parsed YAML tree, to count the nodes of.
+     */
+    void parsed(final Object tree) {
+        if (configName != null) {
+            nodes = count(tree);
+        }
+    }
+
+    /**
+     * Ends the current phase, and reports the profile.
+     *
+     * @param properties Flattened properties that were published.
+     */
+    void finish(final Map<String, String> properties) {
+        if (configName == null) {
+            return;
+        }
+
+        end();
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.configName = configName;
+            event.cached = cached;
+            event.resolveTime = times[Phase.RESOLVE.ordinal()];
+            event.readTime = times[Phase.READ.ordinal()];
+            event.parseTime = times[Phase.PARSE.ordinal()];
+            event.flattenTime = times[Phase.FLATTEN.ordinal()];
+            event.publishTime = times[Phase.PUBLISH.ordinal()];
+            event.bytes = bytes;
+            event.nodes = nodes;
+            event.keys = properties.size();
+            event.commit();
+        }
+
+        logger.info(summary(properties.size()));
+    }
+
+    /**
+     * @param keys Number of flattened properties.
+     * @return Human readable summary of the profile.
+     */
+    String summary(final int keys) {
+        final StringBuilder builder = new StringBuilder("Loaded ")
+            .append(configName)
+            .append(" in ")
+            .append(millis(System.nanoTime() - start))
+            .append(" (");
+
+        for (final Phase p : Phase.values()) {
+            if (p.ordinal() != 0) {
+                builder.append(", ");
+            }
+
+            builder.append(p.getLabel()).append(' ').append(millis(times[p.ordinal()]));
+        }
+
+        return builder.append(")")
+            .append((cached) ? " from cache" : "")
+            .append(", ").append(bytes).append(" bytes")
+            .append(", ").append(nodes).append(" nodes")
+            .append(", ").append(keys).append(" keys.")
+            .toString();
+    }
+
+    /**
+     * @param nanos Duration in nanoseconds.
+     * @return Duration in milliseconds, such as <code>1.25 ms</code>.
+     */
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * @param value Node of a parsed YAML tree.
+     * @return Number of nodes in the tree, including this one.
+     */
+    private static long count(final Object value) {
+        long count = 1;
+
+        if (value instanceof Map) {
+            for (final Object o : ((Map<?, ?>) value).values()) {
+                count += count(o);
+            }
+        } else if (value instanceof Iterable) {
+            for (final Object o : (Iterable<?>) value) {
+                count += count(o);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Phases of loading a configuration, in order.
+     */
+    enum Phase {
+
+        /** Finding the configuration on the classpath. */
+        RESOLVE("resolve"),
+
+        /** Reading the bytes of the configuration. */
+        READ("read"),
+
+        /** Parsing the configuration with SnakeYAML. */
+        PARSE("parse"),
+
+        /** Flattening the parsed tree to properties. */
+        FLATTEN("flatten"),
+
+        /** Interpolating and publishing the properties to the source. */
+        PUBLISH("publish");
+
+        /** Name of the phase in reports. */
+        private final String label;
+
+        /**
+         * @param label Name of the phase in reports.
+         */
+        Phase(final String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return Name of the phase in reports.
+         */
+        String getLabel() {
+            return label;
+        }
+    }
+}
@@ -16,8 +16,13 @@
 
 package fun.falco.yaml4deltaspike;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.StringJoiner;
 
 /**
@@ -94,61 +99,155 @@ public final class MapUtils {
      *     qualified names.
      */
     public static <V> Map<String, String> flattenMapProperties(final Map<String, V> input, final boolean indexed) {
-        final Map<String, String> result = new HashMap<>();
-        flattenMapProperties(input, result, indexed);
-        return result;
+        return flattenMapProperties(input, IndexMode.of(indexed));
     }
 
     /**
-     * Calls {@link #flattenMapProperties(Map, Map, boolean, String)} with parameter
-     * <code>prefix</code> as <code>null</code>, since when we begin flattening the map,
-     * there is no prefix by default.
+     * Converts a {@link Map} of objects to a flattened {@link Map} of
+     * {@link String} values.
+     *
+     * <p>With {@link IndexMode#FULL}, the example given in
+     * {@link #flattenMapProperties(Map, boolean)} would result in:</p>
+     *
+     * <pre><code>
+     * application.name=My App
+     * application.prefixes.size=2
+     * application.prefixes[0]=&gt;
+     * application.prefixes[1]=$
+     * </code></pre>
      *
      * @param input {@link Map} of properties that may contain nested Maps.
-     * @param output {@link Map} that all properties are written to.
-     * @param indexed
-     *     If arrays should be converted to a multiple indexed properties,
-     *     appended with [i], or a single comma separated list of values.
+     * @param mode How lists should be converted to properties.
      * @param <V> Type(s) of value(s) the {@link Map} contains.
-     * @see #flattenMapProperties(Map, Map, boolean, String)
+     * @return
+     *     {@link Map} that contains all properties accessible by their fully
+     *     qualified names, which is an immutable {@link IndexedProperties} if
+     *     mode is {@link IndexMode#FULL}.
+     * @see #flattenMapProperties(Map, boolean)
+     * @since 1.4.0
      */
-    private static <V> void flattenMapProperties(
+    public static <V> Map<String, String> flattenMapProperties(final Map<String, V> input, final IndexMode mode) {
+        return flattenMapProperties(input, mode, KeyProjection.ALL);
+    }
+
+    /**
+     * Converts a {@link Map} of objects to a flattened {@link Map} of
+     * {@link String} values, only keeping properties that match the
+     * projection. Nested {@link Map}s and lists that no pattern can match are
+     * skipped without descending into them.
+     *
+     * <p>Keys referenced by kept values, such as <code>${database.host}</code>,
+     * are kept too, including keys they reference in turn, so references
+     * still resolve whether they're interpolated or left for DeltaSpike.</p>
+     *
+     * @param input {@link Map} of properties that may contain nested Maps.
+     * @param mode How lists should be converted to properties.
+     * @param projection Patterns of the keys to keep.
+     * @param <V> Type(s) of value(s) the {@link Map} contains.
+     * @return
+     *     {@link Map} that contains all matching properties accessible by
+     *     their fully qualified names, which is an immutable
+     *     {@link IndexedProperties} if mode is {@link IndexMode#FULL}.
+     * @see #flattenMapProperties(Map, IndexMode)
+     * @since 1.4.0
+     */
+    public static <V> Map<String, String> flattenMapProperties(
         final Map<String, V> input,
-        final Map<String, String> output,
-        final boolean indexed
+        final IndexMode mode,
+        final KeyProjection projection
+    ) {
+        Map<String, String> result = flatten(input, mode, projection);
+
+        if (projection.getPatterns() == null) {
+            return result;
+        }
+
+        final Set<String> attempted = new HashSet<>();
+        KeyProjection current = projection;
+
+        while (true) {
+            final Set<String> missing = new HashSet<>();
+
+            for (final String value : result.values()) {
+                for (final String reference : PropertyInterpolator.getReferences(value)) {
+                    if (!result.containsKey(reference) && attempted.add(reference)) {
+                        missing.add(reference);
+                    }
+                }
+            }
+
+            if (missing.isEmpty()) {
+                return result;
+            }
+
+            current = current.including(missing);
+            result = flatten(input, mode, current);
+        }
+    }
+
+    /**
+     * @param input {@link Map} of properties that may contain nested Maps.
+     * @param mode How lists should be converted to properties.
+     * @param projection Patterns of the keys to keep.
+     * @param <V> Type(s) of value(s) the {@link Map} contains.
+     * @return Properties that match the projection.
+     */
+    private static <V> Map<String, String> flatten(
+        final Map<String, V> input,
+        final IndexMode mode,
+        final KeyProjection projection
     ) {
-        flattenMapProperties(input, output, indexed, null);
+        final Map<String, String> result = new HashMap<>();
+
+        if (mode != IndexMode.FULL) {
+            flattenMapProperties(input, result, null, mode, null, projection.root());
+            return result;
+        }
+
+        final Map<String, String[]> lists = new HashMap<>();
+        flattenMapProperties(input, result, lists, mode, null, projection.root());
+        return new IndexedProperties(result, lists);
     }
 
     /**
      * @param input {@link Map} of properties that may contain nested Maps.
      * @param output {@link Map} that all properties are written to.
-     * @param indexed
-     *     If arrays should be converted to a multiple indexed properties,
-     *     appended with [i], or a single comma separated list of values.
+     * @param lists
+     *     {@link Map} that scalar elements of lists are written to, only used
+     *     if mode is {@link IndexMode#FULL}.
+     * @param mode How lists should be converted to properties.
      * @param prefix
      *     The partial property name to prefix to any found properties on this
-     *     level.
+     *     level, or null if this is the root.
+     * @param state Projection state of this level.
      * @param <V> Type(s) of value(s) the {@link Map} contains.
      */
     private static <V> void flattenMapProperties(
         final Map<String, V> input,
         final Map<String, String> output,
-        final boolean indexed,
-        final String prefix
+        final Map<String, String[]> lists,
+        final IndexMode mode,
+        final String prefix,
+        final KeyProjection.State state
     ) {
         input.forEach((key, value) -> {
             if (value == null) {
                 return;
             }
 
+            final KeyProjection.State s = state.child(key);
+
+            if (s == null) {
+                return;
+            }
+
             final String k = (prefix == null) ? key : (prefix + '.' + key);
 
             if (value instanceof Map) {
-                flattenMapProperties((Map) value, output, indexed, k);
+                flattenMapProperties((Map) value, output, lists, mode, k, s);
             } else if (value instanceof Iterable) {
-                addIterable((Iterable) value, k, output, indexed);
-            } else {
+                addIterable((Iterable) value, k, output, lists, mode, s);
+            } else if (s.matches()) {
                 output.put(k, (output.containsKey(k)) ? output.get(k) + "," + value : value.toString());
             }
         });
@@ -158,24 +257,45 @@ public final class MapUtils {
      * @param value Values that needs to be flattened.
      * @param key Property name for this value.
      * @param output {@link Map} that all properties are written to.
-     * @param indexed
-     *     If arrays should be converted to a multiple indexed properties,
-     *     appended with [i], or a single comma separated list of values.
+     * @param lists
+     *     {@link Map} that scalar elements of lists are written to, only used
+     *     if mode is {@link IndexMode#FULL}.
+     * @param mode How lists should be converted to properties.
+     * @param state Projection state of this property.
      * @param <V> Type(s) of value(s) the {@link Map} contains.
      */
     private static <V> void addIterable(
         final Iterable<V> value,
         final String key,
         final Map<String, String> output,
-        final boolean indexed
+        final Map<String, String[]> lists,
+        final IndexMode mode,
+        final KeyProjection.State state
     ) {
+        if (mode == IndexMode.FULL) {
+            addIndexedIterable(value, key, output, lists, state);
+            return;
+        }
+
         final StringJoiner joiner = new StringJoiner(",");
+        final KeyProjection.State elements = state.elements();
+        final boolean joined = elements.matches();
         int index = 0;
 
         for (final Object o : value) {
             if (o instanceof Map) {
-                flattenMapProperties((Map) o, output, indexed, (indexed) ? key + "[" + index++ + "]" : key);
-            } else {
+                if (mode == IndexMode.MAPS) {
+                    final KeyProjection.State s = state.element(index);
+
+                    if (s != null) {
+                        flattenMapProperties((Map) o, output, lists, mode, key + "[" + index + "]", s);
+                    }
+
+                    index++;
+                } else {
+                    flattenMapProperties((Map) o, output, lists, mode, key, elements);
+                }
+            } else if (joined) {
                 joiner.add(o.toString());
             }
         }
@@ -184,4 +304,91 @@ public final class MapUtils {
             output.put(key, joiner.toString());
         }
     }
+
+    /**
+     * Flattens every element of the list with an index, storing scalar
+     * elements once in an array, and the length of the list as
+     * <code>key.size</code>.
+     *
+     * @param value Values that needs to be flattened.
+     * @param key Property name for this value.
+     * @param output {@link Map} that all properties are written to.
+     * @param lists
+     *     {@link Map} that the scalar elements of every kept list are written
+     *     to.
+     * @param state Projection state of this property.
+     * @param <V> Type(s) of value(s) the {@link Map} contains.
+     */
+    private static <V> void addIndexedIterable(
+        final Iterable<V> value,
+        final String key,
+        final Map<String, String> output,
+        final Map<String, String[]> lists,
+        final KeyProjection.State state
+    ) {
+        final int outputSize = output.size();
+        final int listsSize = lists.size();
+        String[] scalars = new String[(value instanceof Collection) ? ((Collection) value).size() : 8];
+        boolean hasScalars = false;
+        int index = 0;
+
+        for (final Object o : value) {
+            final KeyProjection.State s = state.element(index);
+
+            if (o != null && s != null) {
+                if (o instanceof Map) {
+                    flattenMapProperties((Map) o, output, lists, IndexMode.FULL, key + "[" + index + "]", s);
+                } else if (o instanceof Iterable) {
+                    addIndexedIterable((Iterable) o, key + "[" + index + "]", output, lists, s);
+                } else if (s.matches()) {
+                    if (index >= scalars.length) {
+                        scalars = Arrays.copyOf(scalars, Math.max(scalars.length * 2, index + 1));
+                    }
+
+                    scalars[index] = o.toString();
+                    hasScalars = true;
+                }
+            }
+
+            index++;
+        }
+
+        final KeyProjection.State size = state.child("size");
+
+        if (hasScalars || output.size() != outputSize || lists.size() != listsSize || (size != null && size.matches())) {
+            if (!hasScalars) {
+                lists.put(key, IndexedProperties.NO_SCALARS);
+            } else {
+                lists.put(key, (scalars.length == index) ? scalars : Arrays.copyOf(scalars, index));
+            }
+
+            output.put(key + ".size", Integer.toString(index));
+        }
+    }
+
+    /**
+     * Compares two sets of flattened properties.
+     *
+     * @param before Properties before they changed.
+     * @param after Properties after they changed.
+     * @return Keys that were added, removed, or have a different value.
+     * @since 1.4.0
+     */
+    public static Set<String> changedKeys(final Map<String, String> before, final Map<String, String> after) {
+        final Set<String> changed = new HashSet<>();
+
+        before.forEach((key, value) -> {
+            if (!Objects.equals(value, after.get(key))) {
+                changed.add(key);
+            }
+        });
+
+        after.keySet().forEach((key) -> {
+            if (!before.containsKey(key)) {
+                changed.add(key);
+            }
+        });
+
+        return changed;
+    }
 }
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves <code>${key}</code> references between flattened properties ahead
+ * of time, so that looking up a property is a plain {@link Map#get(Object)}.
+ *
+ * <p>Each value is compiled into a template once, and values are resolved in
+ * dependency order. For example:</p>
+ *
+ * <pre><code>
+ * application.host=localhost
+ * application.url=http://${application.host}:${application.port}
+ * </code></pre>
+ *
+ * <p>Will resolve <code>application.url</code> to
+ * <code>http://localhost:${application.port}</code>, since references to keys
+ * that aren't in these properties are left as they are for DeltaSpike to
+ * resolve.</p>
+ *
+ * <p>Keys that are part of, or depend on, a cycle of references are left
+ * unresolved.</p>
+ *
+ * <p>The given properties aren't copied. Only the values that resolve to
+ * something different are stored, on top of the given properties, so
+ * properties shared by the {@link YamlParseCache}, or stored compactly as
+ * {@link IndexedProperties}, stay shared. If no value contains a reference,
+ * the given properties are returned as they are.</p>
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @since 1.4.0
+ */
+public final class PropertyInterpolator {
+
+    /** Logging with slf4j. */
+    private static final Logger logger = LoggerFactory.getLogger(PropertyInterpolator.class);
+
+    /** Unresolved properties, as they were given. */
+    private Map<String, String> raw = Map.of();
+
+    /** Compiled values, only for values that contain references. */
+    private final Map<String, Template> templates = new HashMap<>();
+
+    /** Keys whose values reference a key, by the referenced key. */
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    /** Resolved values that differ from the raw value, never modified once published. */
+    private Map<String, String> overrides = Map.of();
+
+    /**
+     * @see #getProperties()
+     */
+    private volatile Map<String, String> resolved = Map.of();
+
+    /**
+     * @param properties
+     *     Flattened properties that may reference each other, which must not
+     *     be modified afterward.
+     */
+    public PropertyInterpolator(final Map<String, String> properties) {
+        update(properties);
+    }
+
+    /**
+     * @return
+     *     Resolved properties, which are the given properties if no values
+     *     reference a key.
+     */
+    public Map<String, String> getProperties() {
+        return resolved;
+    }
+
+    /**
+     * @param value Raw value of a property.
+     * @return Distinct keys the value references, in order.
+     */
+    static Set<String> getReferences(final String value) {
+        final Template template = (value == null) ? null : Template.compile(value);
+        return (template == null) ? Set.of() : template.references;
+    }
+
+    /**
+     * Replaces the properties, only resolving the keys that changed, and the
+     * keys that reference them.
+     *
+     * @param properties
+     *     Flattened properties that may reference each other, which must not
+     *     be modified afterward.
+     * @return Keys whose resolved values changed, were added, or were removed.
+     * @throws NullPointerException If properties is null.
+     */
+    public synchronized Set<String> update(final Map<String, String> properties) {
+        Objects.requireNonNull(properties);
+
+        if (properties == raw) {
+            return Set.of();
+        }
+
+        final Map<String, String> previousRaw = raw;
+        final Set<String> changed = (previousRaw.isEmpty()) ? properties.keySet() : MapUtils.changedKeys(previousRaw, properties);
+        raw = properties;
+
+        if (changed.isEmpty()) {
+            publish(overrides);
+            return Set.of();
+        }
+
+        for (final String key : changed) {
+            final Template previous = templates.remove(key);
+
+            if (previous != null) {
+                for (final String reference : previous.references) {
+                    final Set<String> keys = dependents.get(reference);
+                    keys.remove(key);
+
+                    if (keys.isEmpty()) {
+                        dependents.remove(reference);
+                    }
+                }
+            }
+
+            final String value = properties.get(key);
+            final Template template = (value == null) ? null : Template.compile(value);
+
+            if (template != null) {
+                templates.put(key, template);
+
+                for (final String reference : template.references) {
+                    dependents.computeIfAbsent(reference, (k) -> new HashSet<>()).add(key);
+                }
+            }
+        }
+
+        final Map<String, String> previous = overrides;
+
+        if (templates.isEmpty() && previous.isEmpty()) {
+            publish(previous);
+            return (previousRaw.isEmpty()) ? Collections.unmodifiableSet(changed) : changed;
+        }
+
+        final Set<String> affected = getAffected(changed);
+        final Map<String, String> next = new HashMap<>(previous);
+        resolve(affected, next);
+
+        final Set<String> updated = new HashSet<>();
+
+        for (final String key : affected) {
+            if (!Objects.equals(get(previousRaw, previous, key), get(properties, next, key))) {
+                updated.add(key);
+            }
+        }
+
+        publish(next);
+        return updated;
+    }
+
+    /**
+     * @param next Resolved values that differ from the raw value.
+     */
+    private void publish(final Map<String, String> next) {
+        overrides = next;
+        resolved = (next.isEmpty()) ? raw : new ResolvedProperties(raw, next);
+    }
+
+    /**
+     * @param properties Unresolved properties.
+     * @param resolvedValues Resolved values that differ from the raw value.
+     * @param key Key to get the resolved value of.
+     * @return Resolved value, or null if the key doesn't exist.
+     */
+    private static String get(final Map<String, String> properties, final Map<String, String> resolvedValues, final String key) {
+        final String value = resolvedValues.get(key);
+        return (value == null) ? properties.get(key) : value;
+    }
+
+    /**
+     * @param changed Keys that were added, removed, or changed.
+     * @return Changed keys, and all keys that transitively reference them.
+     */
+    private Set<String> getAffected(final Set<String> changed) {
+        final Set<String> affected = new HashSet<>(changed);
+        final Deque<String> queue = new ArrayDeque<>(changed);
+
+        while (!queue.isEmpty()) {
+            final Set<String> keys = dependents.get(queue.poll());
+
+            if (keys != null) {
+                for (final String key : keys) {
+                    if (affected.add(key)) {
+                        queue.add(key);
+                    }
+                }
+            }
+        }
+
+        return affected;
+    }
+
+    /**
+     * Resolves the affected keys in topological order, all other keys must
+     * already be resolved.
+     *
+     * @param affected Keys that must be resolved.
+     * @param next
+     *     Resolved values that differ from the raw value, that all affected
+     *     keys are written to.
+     */
+    private void resolve(final Set<String> affected, final Map<String, String> next) {
+        final Map<String, Integer> pending = new HashMap<>();
+        final Deque<String> queue = new ArrayDeque<>();
+
+        for (final String key : affected) {
+            next.remove(key);
+
+            if (!raw.containsKey(key)) {
+                continue;
+            }
+
+            final Template template = templates.get(key);
+            int count = 0;
+
+            if (template != null) {
+                for (final String reference : template.references) {
+                    if (affected.contains(reference) && raw.containsKey(reference)) {
+                        count++;
+                    }
+                }
+            }
+
+            if (count == 0) {
+                queue.add(key);
+            } else {
+                pending.put(key, count);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            final String key = queue.poll();
+            final Template template = templates.get(key);
+
+            if (template != null) {
+                final String value = template.render((reference) -> get(raw, next, reference));
+
+                if (!value.equals(raw.get(key))) {
+                    next.put(key, value);
+                }
+            }
+
+            final Set<String> keys = dependents.get(key);
+
+            if (keys == null) {
+                continue;
+            }
+
+            for (final String dependent : keys) {
+                final Integer count = pending.get(dependent);
+
+                if (count == null) {
+                    continue;
+                }
+
+                if (count == 1) {
+                    pending.remove(dependent);
+                    queue.add(dependent);
+                } else {
+                    pending.put(dependent, count - 1);
+                }
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            logger.warn("Properties {} have cyclic references, and will not be interpolated.", pending.keySet());
+        }
+    }
+
+    /**
+     * Unmodifiable view of unresolved properties, with the values that were
+     * resolved to something different replaced.
+     */
+    static final class ResolvedProperties extends AbstractMap<String, String> {
+
+        /** Unresolved properties. */
+        private final Map<String, String> raw;
+
+        /** Resolved values that differ from the raw value. */
+        private final Map<String, String> overrides;
+
+        /**
+         * @see #entrySet()
+         */
+        private Set<Entry<String, String>> entries;
+
+        /**
+         * @param raw Unresolved properties.
+         * @param overrides Resolved values that differ from the raw value.
+         */
+        private ResolvedProperties(final Map<String, String> raw, final Map<String, String> overrides) {
+            this.raw = raw;
+            this.overrides = overrides;
+        }
+
+        /**
+         * @return Unresolved properties.
+         */
+        Map<String, String> getRaw() {
+            return raw;
+        }
+
+        @Override
+        public String get(final Object key) {
+            if (key == null) {
+                return null;
+            }
+
+            final String value = overrides.get(key);
+            return (value == null) ? raw.get(key) : value;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key != null && raw.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return raw.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            if (entries == null) {
+                entries = new AbstractSet<>() {
+
+                    @Override
+                    public Iterator<Entry<String, String>> iterator() {
+                        final Iterator<Entry<String, String>> iterator = raw.entrySet().iterator();
+
+                        return new Iterator<>() {
+
+                            @Override
+                            public boolean hasNext() {
+                                return iterator.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, String> next() {
+                                final Entry<String, String> entry = iterator.next();
+                                final String value = overrides.get(entry.getKey());
+                                return (value == null) ? entry : new SimpleImmutableEntry<>(entry.getKey(), value);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return raw.size();
+                    }
+                };
+            }
+
+            return entries;
+        }
+    }
+
+    /**
+     * Value split into literal text and the keys it references.
+     */
+    private static final class Template {
+
+        /** Literal text around each reference, always one more than references. */
+        private final String[] literals;
+
+        /** Distinct keys that are referenced. */
+        private final Set<String> references;
+
+        /** Referenced key for each gap between literals. */
+        private final String[] keys;
+
+        /**
+         * @param literals Literal text around each reference.
+         * @param keys Referenced key for each gap between literals.
+         */
+        private Template(final String[] literals, final String[] keys) {
+            this.literals = literals;
+            this.keys = keys;
+            this.references = new LinkedHashSet<>(List.of(keys));
+        }
+
+        /**
+         * @param value Raw value of a property.
+         * @return Compiled value, or null if it doesn't reference any keys.
+         */
+        private static Template compile(final String value) {
+            int start = value.indexOf("${");
+
+            if (start < 0) {
+                return null;
+            }
+
+            final List<String> literals = new ArrayList<>();
+            final List<String> keys = new ArrayList<>();
+            int from = 0;
+
+            while (start >= 0) {
+                final int end = value.indexOf('}', start + 2);
+
+                if (end < 0) {
+                    break;
+                }
+
+                literals.add(value.substring(from, start));
+                keys.add(value.substring(start + 2, end));
+                from = end + 1;
+                start = value.indexOf("${", from);
+            }
+
+            if (keys.isEmpty()) {
+                return null;
+            }
+
+            literals.add(value.substring(from));
+            return new Template(literals.toArray(new String[0]), keys.toArray(new String[0]));
+        }
+
+        /**
+         * @param resolved Looks up the resolved value of a referenced key.
+         * @return Value with all references to known keys replaced.
+         */
+        private String render(final Function<String, String> resolved) {
+            final StringBuilder builder = new StringBuilder(literals[0]);
+
+            for (int i = 0; i < keys.length; i++) {
+                final String value = resolved.apply(keys[i]);
+
+                if (value == null) {
+                    builder.append("${").append(keys[i]).append('}');
+                } else {
+                    builder.append(value);
+                }
+
+                builder.append(literals[i + 1]);
+            }
+
+            return builder.toString();
+        }
+    }
+}
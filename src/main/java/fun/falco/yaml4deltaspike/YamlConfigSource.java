@@ -17,8 +17,15 @@
 package fun.falco.yaml4deltaspike;
 
 import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.deltaspike.core.impl.config.MapConfigSource;
 
@@ -36,6 +43,11 @@ import org.apache.deltaspike.core.impl.config.MapConfigSource;
  *
  * <p>This will seek out my_application.yml, instead of application.yml.</p>
  *
+ * <p>Setting the system property <code>yaml4deltaspike.profile=true</code>
+ * reports the time spent resolving, reading, parsing, flattening, and
+ * publishing each configuration as a log line and as
+ * {@link YamlLoadEvent} and {@link YamlLoadPhaseEvent} JFR events.</p>
+ *
  * @author seth@falco.fun (Seth Falco)
  * @since 1.0.0
  */
@@ -53,9 +65,45 @@ public class YamlConfigSource extends MapConfigSource {
     private final String configName;
 
     /**
-     * @see #isIndexed()
+     * File path relative to the classpath of the configuration, or null if
+     * the configuration was read from a stream.
+     */
+    private final String configPath;
+
+    /**
+     * Location of the configuration if it was given as a URL rather than a
+     * path on the classpath, otherwise null.
+     */
+    private final URL configUrl;
+
+    /**
+     * @see #getIndexMode()
+     */
+    private final IndexMode indexMode;
+
+    /**
+     * Patterns of the keys this configuration keeps.
+     */
+    private final KeyProjection projection;
+
+    /**
+     * Resolves references between properties, or null if this configuration
+     * isn't interpolated.
+     *
+     * @see #isInterpolated()
+     */
+    private final PropertyInterpolator interpolator;
+
+    /**
+     * Current properties of this configuration, replaced on {@link #reload()}.
      */
-    private final boolean indexed;
+    private volatile Map<String, String> properties;
+
+    /**
+     * Callback to report changed keys to DeltaSpike, or null if it hasn't
+     * been set.
+     */
+    private volatile Consumer<Set<String>> reportAttributeChange;
 
     /**
      * Construct the {@link YamlConfigSource} with {@link #DEFAULT_FILE_PATH}.
@@ -78,12 +126,161 @@ public class YamlConfigSource extends MapConfigSource {
     }
 
     /**
+     * The configuration is loaded through the shared {@link YamlParseCache},
+     * so other instances for the same file and <code>indexed</code> flag share
+     * the same properties.
+     *
      * @param configPath File relative to the classpath of the configuration.
      * @param indexed If this configuration should used indexed keys, or lists.
      * @throws NullPointerException If configPath is null.
+     * @see YamlParseCache
      */
     public YamlConfigSource(String configPath, boolean indexed) {
-        this(new YamlStringFunction().apply(configPath), configPath, indexed);
+        this(configPath, indexed, false);
+    }
+
+    /**
+     * @param configPath File relative to the classpath of the configuration.
+     * @param indexed If this configuration should used indexed keys, or lists.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     * @throws NullPointerException If configPath is null.
+     * @see #isInterpolated()
+     */
+    public YamlConfigSource(String configPath, boolean indexed, boolean interpolated) {
+        this(configPath, IndexMode.of(indexed), interpolated, KeyProjection.ALL);
+    }
+
+    /**
+     * Only keeps the properties that match the given key patterns, skipping
+     * any parts of the configuration that can't match without flattening
+     * them. Keys may be literal keys, prefixes such as <code>database.*</code>,
+     * or contain indices such as <code>messages[*].source</code>.
+     *
+     * <p>Keys referenced by the kept properties, such as
+     * <code>${database.host}</code>, are kept as well, so references still
+     * resolve whether or not this configuration is interpolated.</p>
+     *
+     * @param configPath File relative to the classpath of the configuration.
+     * @param indexed If this configuration should used indexed keys, or lists.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     * @param keys Patterns of the keys the application uses.
+     * @throws NullPointerException If configPath or keys is null.
+     * @throws IllegalArgumentException If any key pattern is malformed.
+     * @see KeyProjection
+     * @since 1.4.0
+     */
+    public YamlConfigSource(String configPath, boolean indexed, boolean interpolated, Collection<String> keys) {
+        this(configPath, IndexMode.of(indexed), interpolated, KeyProjection.of(keys));
+    }
+
+    /**
+     * Calls {@link #YamlConfigSource(String, IndexMode, boolean, Collection)}
+     * without interpolation, keeping all keys.
+     *
+     * @param configPath File relative to the classpath of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @throws NullPointerException If configPath or indexMode is null.
+     * @see #YamlConfigSource(String, IndexMode, boolean, Collection)
+     * @since 1.4.0
+     */
+    public YamlConfigSource(String configPath, IndexMode indexMode) {
+        this(configPath, indexMode, false, KeyProjection.ALL);
+    }
+
+    /**
+     * @param configPath File relative to the classpath of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     * @param keys Patterns of the keys the application uses.
+     * @throws NullPointerException If configPath, indexMode, or keys is null.
+     * @throws IllegalArgumentException If any key pattern is malformed.
+     * @see #YamlConfigSource(String, boolean, boolean, Collection)
+     * @since 1.4.0
+     */
+    public YamlConfigSource(String configPath, IndexMode indexMode, boolean interpolated, Collection<String> keys) {
+        this(configPath, indexMode, interpolated, KeyProjection.of(keys));
+    }
+
+    /**
+     * @param configPath File relative to the classpath of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     * @param projection Patterns of the keys this configuration keeps.
+     */
+    private YamlConfigSource(String configPath, IndexMode indexMode, boolean interpolated, KeyProjection projection) {
+        this(LoadProfile.start(configPath), configPath, indexMode, interpolated, projection);
+    }
+
+    /**
+     * @param profile Times each phase of loading the configuration.
+     * @param configPath File relative to the classpath of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     * @param projection Patterns of the keys this configuration keeps.
+     */
+    private YamlConfigSource(
+        LoadProfile profile,
+        String configPath,
+        IndexMode indexMode,
+        boolean interpolated,
+        KeyProjection projection
+    ) {
+        this(
+            YamlParseCache.getInstance().get(configPath, indexMode, projection, profile),
+            profile,
+            configPath,
+            null,
+            configPath,
+            indexMode,
+            projection,
+            interpolated
+        );
+    }
+
+    /**
+     * Loads the configuration from a URL rather than the classpath, such as a
+     * file outside of it, keeping all keys.
+     *
+     * @param configUrl Location of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     * @throws NullPointerException If configUrl or indexMode is null.
+     */
+    YamlConfigSource(URL configUrl, IndexMode indexMode, boolean interpolated) {
+        this(LoadProfile.start(configUrl.toExternalForm()), configUrl, indexMode, interpolated);
+    }
+
+    /**
+     * @param profile Times each phase of loading the configuration.
+     * @param configUrl Location of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     */
+    private YamlConfigSource(LoadProfile profile, URL configUrl, IndexMode indexMode, boolean interpolated) {
+        this(
+            YamlParseCache.getInstance().get(configUrl, indexMode, KeyProjection.ALL, profile),
+            profile,
+            null,
+            configUrl,
+            configUrl.toExternalForm(),
+            indexMode,
+            KeyProjection.ALL,
+            interpolated
+        );
     }
 
     /**
@@ -109,21 +306,96 @@ public class YamlConfigSource extends MapConfigSource {
      * @throws NullPointerException If configName is null.
      */
     public YamlConfigSource(InputStream inputStream, String configName, boolean indexed) {
-        this(new YamlInputStreamFunction().apply(inputStream), configName, indexed);
+        this(inputStream, configName, IndexMode.of(indexed));
     }
 
     /**
-     * @param map
-     *     {@link Map}, which may include nested {@link Map}s, of configuration
-     *     properties.
+     * @param inputStream Input stream to read the configuration from.
      * @param configName
      *     File path relative to the classpath of the configuration.
-     * @param indexed If this configuration should used indexed keys, or lists.
+     * @param indexMode How lists should be converted to properties.
+     * @throws NullPointerException If configName or indexMode is null.
+     * @since 1.4.0
      */
-    private YamlConfigSource(Map<String, Object> map, String configName, boolean indexed) {
-        super(MapUtils.flattenMapProperties(map, indexed));
+    public YamlConfigSource(InputStream inputStream, String configName, IndexMode indexMode) {
+        this(inputStream, configName, Objects.requireNonNull(indexMode), LoadProfile.start(configName));
+    }
+
+    /**
+     * @param inputStream Input stream to read the configuration from.
+     * @param configName
+     *     File path relative to the classpath of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @param profile Times each phase of loading the configuration.
+     */
+    private YamlConfigSource(InputStream inputStream, String configName, IndexMode indexMode, LoadProfile profile) {
+        this(
+            load(inputStream, indexMode, profile),
+            profile,
+            null,
+            null,
+            configName,
+            indexMode,
+            KeyProjection.ALL,
+            false
+        );
+    }
+
+    /**
+     * @param properties Flattened configuration properties.
+     * @param profile Times each phase of loading the configuration.
+     * @param configPath
+     *     File path relative to the classpath of the configuration, or null if
+     *     it was read from a stream or URL.
+     * @param configUrl
+     *     Location of the configuration, or null if it was read from a stream
+     *     or the classpath.
+     * @param configName
+     *     File path relative to the classpath of the configuration.
+     * @param indexMode How lists should be converted to properties.
+     * @param projection Patterns of the keys this configuration keeps.
+     * @param interpolated
+     *     If references between properties should be resolved when the
+     *     configuration is loaded.
+     */
+    private YamlConfigSource(
+        Map<String, String> properties,
+        LoadProfile profile,
+        String configPath,
+        URL configUrl,
+        String configName,
+        IndexMode indexMode,
+        KeyProjection projection,
+        boolean interpolated
+    ) {
+        super(properties);
         this.configName = Objects.requireNonNull(configName);
-        this.indexed = indexed;
+        this.configPath = configPath;
+        this.configUrl = configUrl;
+        this.indexMode = Objects.requireNonNull(indexMode);
+        this.projection = projection;
+
+        profile.begin(LoadProfile.Phase.PUBLISH);
+        this.interpolator = (interpolated) ? new PropertyInterpolator(properties) : null;
+        this.properties = (interpolated) ? interpolator.getProperties() : properties;
+        profile.finish(this.properties);
+    }
+
+    /**
+     * @param inputStream Input stream to read the configuration from.
+     * @param indexMode How lists should be converted to properties.
+     * @param profile Times each phase of loading the configuration.
+     * @return Flattened configuration properties.
+     */
+    private static Map<String, String> load(InputStream inputStream, IndexMode indexMode, LoadProfile profile) {
+        profile.begin(LoadProfile.Phase.PARSE);
+        Map<String, Object> map = new YamlInputStreamFunction().apply(profile.count(inputStream));
+        profile.parsed(map);
+
+        profile.begin(LoadProfile.Phase.FLATTEN);
+        Map<String, String> properties = MapUtils.flattenMapProperties(map, indexMode);
+        profile.end();
+        return properties;
     }
 
     @Override
@@ -131,6 +403,66 @@ public class YamlConfigSource extends MapConfigSource {
         return "yaml " + configName;
     }
 
+    @Override
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    @Override
+    public String getPropertyValue(String key) {
+        return (key == null) ? null : properties.get(key);
+    }
+
+    @Override
+    public void setOnAttributeChange(Consumer<Set<String>> reportAttributeChange) {
+        this.reportAttributeChange = reportAttributeChange;
+    }
+
+    /**
+     * Loads the configuration again if it has changed. If this configuration
+     * is interpolated, only the keys that changed, and the keys that reference
+     * them, are resolved again.
+     *
+     * <p>If any keys changed, they're reported to the callback set by
+     * DeltaSpike with {@link #setOnAttributeChange(Consumer)}.</p>
+     *
+     * @return Keys whose values changed, were added, or were removed.
+     * @throws UnsupportedOperationException
+     *     If the configuration was read from a stream.
+     * @since 1.4.0
+     */
+    public synchronized Set<String> reload() {
+        if (configPath == null && configUrl == null) {
+            throw new UnsupportedOperationException("Configurations read from a stream can't be reloaded.");
+        }
+
+        LoadProfile profile = LoadProfile.start(configName);
+        YamlParseCache cache = YamlParseCache.getInstance();
+        Map<String, String> loaded = (configUrl == null)
+            ? cache.get(configPath, indexMode, projection, profile)
+            : cache.get(configUrl, indexMode, projection, profile);
+        profile.begin(LoadProfile.Phase.PUBLISH);
+        Set<String> changed;
+
+        if (interpolator != null) {
+            changed = interpolator.update(loaded);
+            properties = interpolator.getProperties();
+        } else {
+            changed = (loaded == properties) ? Set.of() : MapUtils.changedKeys(properties, loaded);
+            properties = loaded;
+        }
+
+        profile.finish(properties);
+
+        Consumer<Set<String>> report = reportAttributeChange;
+
+        if (report != null && !changed.isEmpty()) {
+            report.accept(changed);
+        }
+
+        return changed;
+    }
+
     /**
      * If to return indexed key/value pairs, or a single key/value pair with
      * comma separated values.
@@ -167,6 +499,73 @@ public class YamlConfigSource extends MapConfigSource {
      *     uses indexed arrays, or comma separated values.
      */
     public boolean isIndexed() {
-        return indexed;
+        return indexMode != IndexMode.NONE;
+    }
+
+    /**
+     * @return How lists are converted to properties in this configuration.
+     * @since 1.4.0
+     */
+    public IndexMode getIndexMode() {
+        return indexMode;
+    }
+
+    /**
+     * Returns the elements of a list, as flattened with
+     * {@link IndexMode#FULL}, without splitting any values.
+     *
+     * @param key Fully qualified name of a list.
+     * @return
+     *     Unmodifiable list of the elements, with null where an element isn't
+     *     a scalar, or null if the key isn't a list, or this configuration
+     *     doesn't use {@link IndexMode#FULL}.
+     * @since 1.4.0
+     */
+    public List<String> getList(String key) {
+        if (indexMode != IndexMode.FULL) {
+            return null;
+        }
+
+        Map<String, String> current = properties;
+        Map<String, String> raw = (current instanceof PropertyInterpolator.ResolvedProperties)
+            ? ((PropertyInterpolator.ResolvedProperties) current).getRaw()
+            : current;
+
+        if (!(raw instanceof IndexedProperties)) {
+            return null;
+        }
+
+        List<String> list = ((IndexedProperties) raw).getList(key);
+
+        if (list == null || raw == current) {
+            return list;
+        }
+
+        List<String> resolved = new ArrayList<>(list.size());
+
+        for (int i = 0; i < list.size(); i++) {
+            resolved.add((list.get(i) == null) ? null : current.get(key + "[" + i + "]"));
+        }
+
+        return Collections.unmodifiableList(resolved);
+    }
+
+    /**
+     * If <code>${key}</code> references to other properties in this
+     * configuration are resolved when it's loaded, rather than by DeltaSpike
+     * on every lookup.
+     *
+     * <p>References are resolved against this configuration only, so a
+     * referenced key overridden by a {@link
+     * org.apache.deltaspike.core.spi.config.ConfigSource} with a higher
+     * ordinal will not be reflected. References to keys that aren't in this
+     * configuration are left for DeltaSpike to resolve.</p>
+     *
+     * @return If references between properties are resolved ahead of time.
+     * @see PropertyInterpolator
+     * @since 1.4.0
+     */
+    public boolean isInterpolated() {
+        return interpolator != null;
     }
 }
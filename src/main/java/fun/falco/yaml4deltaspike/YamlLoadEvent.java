@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed once a {@link YamlConfigSource} has loaded, with the
+ * time spent in each phase. Only emitted if load profiling is enabled.
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @see YamlConfigSource
+ * @since 1.4.0
+ */
+@Name("fun.falco.yaml4deltaspike.Load")
+@Label("YAML Configuration Load")
+@Description("Time spent loading a YAML configuration source, by phase.")
+@Category("YAML4DeltaSpike")
+public final class YamlLoadEvent extends Event {
+
+    /** Name of the configuration. */
+    @Label("Configuration")
+    String configName;
+
+    /** If the configuration was served from the parse cache. */
+    @Label("Cached")
+    boolean cached;
+
+    /** Time spent finding the configuration on the classpath. */
+    @Label("Resolve Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long resolveTime;
+
+    /** Time spent reading the configuration. */
+    @Label("Read Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long readTime;
+
+    /** Time spent parsing the configuration with SnakeYAML. */
+    @Label("Parse Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseTime;
+
+    /** Time spent flattening the configuration. */
+    @Label("Flatten Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long flattenTime;
+
+    /** Time spent interpolating and publishing the properties. */
+    @Label("Publish Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long publishTime;
+
+    /** Size of the configuration that was read. */
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    /** Number of nodes in the parsed YAML tree. */
+    @Label("Nodes")
+    long nodes;
+
+    /** Number of flattened properties. */
+    @Label("Keys")
+    long keys;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning a single phase of loading a {@link YamlConfigSource},
+ * such as reading or parsing it. Only emitted if load profiling is enabled.
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @see YamlConfigSource
+ * @since 1.4.0
+ */
+@Name("fun.falco.yaml4deltaspike.LoadPhase")
+@Label("YAML Configuration Load Phase")
+@Description("Single phase of loading a YAML configuration source.")
+@Category("YAML4DeltaSpike")
+public final class YamlLoadPhaseEvent extends Event {
+
+    /** Name of the configuration. */
+    @Label("Configuration")
+    String configName;
+
+    /** Name of the phase, such as parse. */
+    @Label("Phase")
+    String phase;
+}
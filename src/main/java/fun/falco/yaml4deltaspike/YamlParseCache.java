@@ -0,0 +1,698 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.jar.JarEntry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide cache of parsed and flattened YAML resources, so that multiple
+ * {@link YamlConfigSource}s pointing at the same resource only read, parse,
+ * and flatten it once.
+ *
+ * <p>Entries are keyed by the {@link URL} of the resource, and are validated
+ * against the last-modified time of the resource, or a hash of its content if
+ * the resource doesn't report a last-modified time. Each variant of a
+ * resource flattened with an {@link IndexMode} and {@link KeyProjection} is
+ * stored as an unmodifiable {@link Map}.</p>
+ *
+ * <p>The parsed tree is only retained once a variant that keeps all keys has
+ * been requested, so resources only used with a projection retain memory in
+ * proportion to the keys they keep rather than the size of the resource. If
+ * another variant of such a resource is requested, it's read and parsed
+ * again.</p>
+ *
+ * <p>The cache is bounded by the estimated size of its entries, evicting the
+ * least recently used resources first.</p>
+ *
+ * @author seth@falco.fun (Seth Falco)
+ * @since 1.4.0
+ */
+public final class YamlParseCache {
+
+    /** Default maximum estimated size of all cached entries, 16 MiB. */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /** Logging with slf4j. */
+    private static final Logger logger = LoggerFactory.getLogger(YamlParseCache.class);
+
+    /** Instance shared by all {@link YamlConfigSource}s. */
+    private static final YamlParseCache INSTANCE = new YamlParseCache(DEFAULT_MAX_BYTES);
+
+    /** Cached resources by URL, in least recently used order. */
+    private final LinkedHashMap<String, Document> documents = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @see #getMaxBytes()
+     */
+    private long maxBytes;
+
+    /**
+     * @see #getEstimatedBytes()
+     */
+    private long estimatedBytes;
+
+    /**
+     * @param maxBytes Maximum estimated size of all cached entries.
+     * @throws IllegalArgumentException If maxBytes is negative.
+     */
+    public YamlParseCache(final long maxBytes) {
+        setMaxBytes(maxBytes);
+    }
+
+    /**
+     * @return Instance shared by all {@link YamlConfigSource}s.
+     */
+    public static YamlParseCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Resolves the configuration on the classpath, and calls
+     * {@link #get(URL, boolean)}.
+     *
+     * @param configPath File path relative to the classpath of the configuration.
+     * @param indexed If the properties should use indexed keys, or lists.
+     * @return
+     *     Unmodifiable flattened properties, or an empty {@link Map} if the
+     *     configuration was not found on the classpath.
+     * @throws NullPointerException If configPath is null.
+     * @see #get(URL, boolean)
+     */
+    public Map<String, String> get(final String configPath, final boolean indexed) {
+        return get(configPath, IndexMode.of(indexed), KeyProjection.ALL);
+    }
+
+    /**
+     * Resolves the configuration on the classpath, and calls
+     * {@link #get(URL, IndexMode, KeyProjection)}.
+     *
+     * @param configPath File path relative to the classpath of the configuration.
+     * @param mode How lists should be converted to properties.
+     * @param projection Patterns of the keys to keep.
+     * @return
+     *     Unmodifiable flattened properties, or an empty {@link Map} if the
+     *     configuration was not found on the classpath.
+     * @throws NullPointerException If configPath, mode, or projection is null.
+     * @see #get(URL, IndexMode, KeyProjection)
+     */
+    public Map<String, String> get(final String configPath, final IndexMode mode, final KeyProjection projection) {
+        return get(configPath, mode, projection, LoadProfile.disabled());
+    }
+
+    /**
+     * @param configPath File path relative to the classpath of the configuration.
+     * @param mode How lists should be converted to properties.
+     * @param projection Patterns of the keys to keep.
+     * @param profile Times each phase of loading the configuration.
+     * @return
+     *     Unmodifiable flattened properties, or an empty {@link Map} if the
+     *     configuration was not found on the classpath.
+     * @see #get(String, IndexMode, KeyProjection)
+     */
+    Map<String, String> get(
+        final String configPath,
+        final IndexMode mode,
+        final KeyProjection projection,
+        final LoadProfile profile
+    ) {
+        Objects.requireNonNull(mode);
+        Objects.requireNonNull(projection);
+        profile.begin(LoadProfile.Phase.RESOLVE);
+        final URL url = YamlConfigSource.class.getClassLoader().getResource(configPath);
+        profile.end();
+
+        if (url == null) {
+            logger.warn("Using {}, but `{}` was not found on the classpath.", YamlConfigSource.class, configPath);
+            return Collections.emptyMap();
+        }
+
+        return get(url, mode, projection, profile);
+    }
+
+    /**
+     * Returns the flattened properties of the resource, only reading, parsing,
+     * or flattening it if it isn't cached already, or if it has changed since
+     * it was cached.
+     *
+     * @param url Location of the YAML configuration.
+     * @param indexed If the properties should use indexed keys, or lists.
+     * @return
+     *     Unmodifiable flattened properties, or an empty {@link Map} if the
+     *     resource could not be read.
+     * @throws NullPointerException If url is null.
+     */
+    public Map<String, String> get(final URL url, final boolean indexed) {
+        return get(url, IndexMode.of(indexed), KeyProjection.ALL);
+    }
+
+    /**
+     * Returns the flattened properties of the resource that match the
+     * projection, only reading, parsing, or flattening it if it isn't cached
+     * already, or if it has changed since it was cached.
+     *
+     * @param url Location of the YAML configuration.
+     * @param mode How lists should be converted to properties.
+     * @param projection Patterns of the keys to keep.
+     * @return
+     *     Unmodifiable flattened properties, or an empty {@link Map} if the
+     *     resource could not be read.
+     * @throws NullPointerException If url, mode, or projection is null.
+     */
+    public Map<String, String> get(final URL url, final IndexMode mode, final KeyProjection projection) {
+        return get(url, mode, projection, LoadProfile.disabled());
+    }
+
+    /**
+     * @param url Location of the YAML configuration.
+     * @param mode How lists should be converted to properties.
+     * @param projection Patterns of the keys to keep.
+     * @param profile Times each phase of loading the configuration.
+     * @return
+     *     Unmodifiable flattened properties, or an empty {@link Map} if the
+     *     resource could not be read.
+     * @see #get(URL, IndexMode, KeyProjection)
+     */
+    Map<String, String> get(
+        final URL url,
+        final IndexMode mode,
+        final KeyProjection projection,
+        final LoadProfile profile
+    ) {
+        final Variant variant = new Variant(mode, projection);
+        final String key = url.toExternalForm();
+        URLConnection connection = null;
+
+        try {
+            final long lastModified;
+            final Path path = toPath(url);
+
+            if (path != null) {
+                lastModified = Files.getLastModifiedTime(path).toMillis();
+            } else {
+                connection = url.openConnection();
+                lastModified = getLastModified(connection);
+            }
+
+            if (lastModified != 0) {
+                final Document document = getCached(key, lastModified, null);
+                final Map<String, String> properties = (document == null) ? null : getProperties(document, variant, null, profile);
+
+                if (properties != null) {
+                    return properties;
+                }
+            }
+
+            if (connection == null) {
+                connection = url.openConnection();
+            }
+
+            final byte[] content;
+            profile.begin(LoadProfile.Phase.READ);
+
+            try (InputStream inputStream = connection.getInputStream()) {
+                connection = null;
+                content = inputStream.readAllBytes();
+            }
+
+            final byte[] hash = hash(content);
+            profile.read(content);
+            profile.end();
+
+            final Document cached = getCached(key, lastModified, hash);
+            final Map<String, String> properties = (cached == null) ? null : getProperties(cached, variant, null, profile);
+
+            if (properties != null) {
+                return properties;
+            }
+
+            profile.begin(LoadProfile.Phase.PARSE);
+            final Map<String, Object> parsed = new YamlInputStreamFunction().apply(new ByteArrayInputStream(content));
+            final Map<String, Object> tree = (parsed == null) ? Map.of() : parsed;
+            profile.parsed(tree);
+            profile.end();
+
+            if (cached != null) {
+                return getProperties(cached, variant, tree, profile);
+            }
+
+            final Document document = new Document(lastModified, hash);
+
+            synchronized (this) {
+                put(key, document);
+            }
+
+            return getProperties(document, variant, tree, profile);
+        } catch (IOException ex) {
+            profile.end();
+            logger.error("Failed to read the configuration from `{}`.", url, ex);
+            return Collections.emptyMap();
+        } finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * @param url Location of the YAML configuration.
+     * @return
+     *     Path of the resource if it's a file, so its last-modified time can be
+     *     checked without opening it, otherwise null.
+     */
+    private static Path toPath(final URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the last-modified time of the entry itself for resources in a JAR,
+     * as {@link URLConnection#getLastModified()} opens a separate connection to
+     * the JAR that is never closed.
+     *
+     * @param connection Unconnected connection to the resource.
+     * @return Last-modified time of the resource, or 0 if it's not known.
+     * @throws IOException If the resource could not be found.
+     */
+    private static long getLastModified(final URLConnection connection) throws IOException {
+        if (connection instanceof JarURLConnection) {
+            final JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            return (entry == null || entry.getTime() < 0) ? 0 : entry.getTime();
+        }
+
+        return connection.getLastModified();
+    }
+
+    /**
+     * Releases the resources held by a connection that was opened, but whose
+     * content was never read.
+     *
+     * @param connection Connection to close, or null.
+     */
+    private static void close(final URLConnection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.getInputStream().close();
+        } catch (IOException ex) {
+            logger.debug("Failed to close the connection to `{}`.", connection.getURL(), ex);
+        }
+    }
+
+    /**
+     * Resolves the configuration on the classpath, and calls
+     * {@link #invalidate(URL)}.
+     *
+     * @param configPath File path relative to the classpath of the configuration.
+     * @return If an entry was removed from the cache.
+     * @throws NullPointerException If configPath is null.
+     * @see #invalidate(URL)
+     */
+    public boolean invalidate(final String configPath) {
+        final URL url = YamlConfigSource.class.getClassLoader().getResource(configPath);
+        return url != null && invalidate(url);
+    }
+
+    /**
+     * Removes the resource from the cache, so the next lookup reads it again.
+     *
+     * @param url Location of the YAML configuration.
+     * @return If an entry was removed from the cache.
+     * @throws NullPointerException If url is null.
+     */
+    public synchronized boolean invalidate(final URL url) {
+        final Document document = documents.remove(url.toExternalForm());
+
+        if (document == null) {
+            return false;
+        }
+
+        estimatedBytes -= document.estimatedBytes;
+        return true;
+    }
+
+    /**
+     * Removes all resources from the cache.
+     */
+    public synchronized void invalidateAll() {
+        documents.clear();
+        estimatedBytes = 0;
+    }
+
+    /**
+     * @return Number of resources currently cached.
+     */
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    /**
+     * @return Estimated size in bytes of all cached entries.
+     */
+    public synchronized long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * @return Maximum estimated size in bytes of all cached entries.
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the maximum estimated size of all cached entries, evicting least
+     * recently used resources if the cache is now too large.
+     *
+     * @param maxBytes Maximum estimated size in bytes of all cached entries.
+     * @throws IllegalArgumentException If maxBytes is negative.
+     */
+    public synchronized void setMaxBytes(final long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative.");
+        }
+
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @param key URL of the resource.
+     * @param lastModified Last-modified time of the resource, or 0.
+     * @param hash
+     *     SHA-256 hash of the content of the resource, or null to only
+     *     compare the last-modified time.
+     * @return
+     *     Cached resource if it's unchanged, updating its last-modified time
+     *     if it was matched by hash, otherwise null.
+     */
+    private synchronized Document getCached(final String key, final long lastModified, final byte[] hash) {
+        final Document document = documents.get(key);
+
+        if (document == null) {
+            return null;
+        }
+
+        if (hash == null) {
+            return (document.lastModified == lastModified) ? document : null;
+        }
+
+        if (!MessageDigest.isEqual(document.hash, hash)) {
+            return null;
+        }
+
+        document.lastModified = lastModified;
+        return document;
+    }
+
+    /**
+     * Must not be called while holding the lock on this cache, flattening is
+     * done without the lock, so lookups of other resources aren't blocked.
+     * If another thread flattens the same variant at the same time, the first
+     * to finish is kept.
+     *
+     * <p>If the variant keeps all keys, the tree is retained by the document
+     * so other variants can be flattened from it.</p>
+     *
+     * @param document Cached resource to get the properties of.
+     * @param variant How the properties should be flattened.
+     * @param parsed
+     *     Tree that was just parsed from the resource, or null to use the tree
+     *     retained by the document.
+     * @param profile Times each phase of loading the configuration.
+     * @return
+     *     Unmodifiable flattened properties, flattening them if required, or
+     *     null if they must be flattened but no tree is available.
+     */
+    private Map<String, String> getProperties(
+        final Document document,
+        final Variant variant,
+        final Map<String, Object> parsed,
+        final LoadProfile profile
+    ) {
+        final Map<String, Object> tree;
+
+        synchronized (this) {
+            final Map<String, String> properties = document.properties.get(variant);
+
+            if (properties != null) {
+                return properties;
+            }
+
+            tree = (parsed == null) ? document.tree : parsed;
+        }
+
+        if (tree == null) {
+            return null;
+        }
+
+        profile.begin(LoadProfile.Phase.FLATTEN);
+        Map<String, String> properties = MapUtils.flattenMapProperties(tree, variant.mode, variant.projection);
+
+        if (!(properties instanceof IndexedProperties)) {
+            properties = Collections.unmodifiableMap(properties);
+        }
+
+        final boolean retain = variant.projection.getPatterns() == null;
+        long bytes = estimateProperties(properties);
+        final long treeBytes = (retain) ? estimate(tree) : 0;
+        profile.end();
+
+        synchronized (this) {
+            final Map<String, String> existing = document.properties.putIfAbsent(variant, properties);
+
+            if (existing != null) {
+                return existing;
+            }
+
+            if (retain && document.tree == null) {
+                document.tree = tree;
+                bytes += treeBytes;
+            }
+
+            document.estimatedBytes += bytes;
+
+            if (documents.get(document.key) == document) {
+                estimatedBytes += bytes;
+                evict();
+            }
+        }
+
+        return properties;
+    }
+
+    /**
+     * Must be called while holding the lock on this cache.
+     *
+     * @param key URL of the resource.
+     * @param document Cached resource to add or replace.
+     */
+    private void put(final String key, final Document document) {
+        document.key = key;
+        final Document previous = documents.put(key, document);
+
+        if (previous != null) {
+            estimatedBytes -= previous.estimatedBytes;
+        }
+
+        estimatedBytes += document.estimatedBytes;
+        evict();
+    }
+
+    /**
+     * Removes least recently used resources until the cache fits within
+     * {@link #maxBytes}. Must be called while holding the lock on this cache.
+     */
+    private void evict() {
+        final Iterator<Document> iterator = documents.values().iterator();
+
+        while (estimatedBytes > maxBytes && iterator.hasNext()) {
+            final Document document = iterator.next();
+            iterator.remove();
+            estimatedBytes -= document.estimatedBytes;
+            logger.debug("Evicted `{}` from the YAML parse cache.", document.key);
+        }
+    }
+
+    /**
+     * @param content Raw bytes of the resource.
+     * @return SHA-256 hash of the content.
+     */
+    private static byte[] hash(final byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is required to be supported by all Java platforms.", ex);
+        }
+    }
+
+    /**
+     * @param properties Flattened properties.
+     * @return Rough estimate of the memory retained by the properties.
+     */
+    private static long estimateProperties(final Map<String, String> properties) {
+        long bytes = 16;
+
+        for (final Map.Entry<String, String> entry : properties.entrySet()) {
+            bytes += 16 + estimate(entry.getKey()) + estimate(entry.getValue());
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @param value Node of a parsed YAML tree.
+     * @return Rough estimate of the memory retained by the node.
+     */
+    private static long estimate(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+
+        if (value instanceof Map) {
+            long bytes = 48;
+
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 40 + estimate(entry.getKey()) + estimate(entry.getValue());
+            }
+
+            return bytes;
+        }
+
+        if (value instanceof Iterable) {
+            long bytes = 24;
+
+            for (final Object o : (Iterable<?>) value) {
+                bytes += 8 + estimate(o);
+            }
+
+            return bytes;
+        }
+
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+
+        return 24;
+    }
+
+    /**
+     * Parsed resource, and the flattened variants of it that have been
+     * requested so far.
+     */
+    private static final class Document {
+
+        /**
+         * Parsed YAML tree, shared by all variants, or null if only projected
+         * variants have been requested.
+         */
+        private Map<String, Object> tree;
+
+        /** Unmodifiable flattened properties, by how they were flattened. */
+        private final Map<Variant, Map<String, String>> properties = new HashMap<>(2);
+
+        /** SHA-256 hash of the content of the resource. */
+        private final byte[] hash;
+
+        /** URL of the resource, or null if it's not been added to the cache. */
+        private String key;
+
+        /** Last-modified time of the resource, or 0 if it's not known. */
+        private long lastModified;
+
+        /** Estimated size of the tree, if retained, and all variants. */
+        private long estimatedBytes;
+
+        /**
+         * @param lastModified Last-modified time of the resource, or 0.
+         * @param hash SHA-256 hash of the content of the resource.
+         */
+        private Document(final long lastModified, final byte[] hash) {
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.estimatedBytes = hash.length;
+        }
+    }
+
+    /**
+     * How the properties of a resource are flattened.
+     */
+    private static final class Variant {
+
+        /** How lists are converted to properties. */
+        private final IndexMode mode;
+
+        /** Patterns of the keys to keep. */
+        private final KeyProjection projection;
+
+        /**
+         * @param mode How lists are converted to properties.
+         * @param projection Patterns of the keys to keep.
+         */
+        private Variant(final IndexMode mode, final KeyProjection projection) {
+            this.mode = Objects.requireNonNull(mode);
+            this.projection = Objects.requireNonNull(projection);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Variant)) {
+                return false;
+            }
+
+            final Variant other = (Variant) o;
+            return mode == other.mode && projection.equals(other.projection);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mode.hashCode() + projection.hashCode();
+        }
+    }
+}
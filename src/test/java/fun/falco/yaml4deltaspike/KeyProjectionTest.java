@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author seth@falco.fun (Seth Falco)
+ */
+public class KeyProjectionTest {
+
+    @Test
+    public void testMatches() {
+        KeyProjection projection = KeyProjection.of(List.of(
+            "application.name",
+            "database.*",
+            "messages[*].source",
+            "servers[1]",
+            "prefixes"
+        ));
+
+        assertAll("Assert that literal keys, prefixes, and indices match.",
+            () -> assertTrue(projection.matches("application.name")),
+            () -> assertFalse(projection.matches("application.title")),
+            () -> assertFalse(projection.matches("application")),
+            () -> assertTrue(projection.matches("database.host")),
+            () -> assertTrue(projection.matches("database.pool.size")),
+            () -> assertFalse(projection.matches("database")),
+            () -> assertTrue(projection.matches("messages[3].source")),
+            () -> assertFalse(projection.matches("messages[3].target")),
+            () -> assertTrue(projection.matches("servers[1]")),
+            () -> assertFalse(projection.matches("servers[0]")),
+            () -> assertTrue(projection.matches("prefixes")),
+            () -> assertTrue(projection.matches("prefixes[0]")),
+            () -> assertTrue(projection.matches("prefixes[1][0]")),
+            () -> assertTrue(KeyProjection.ALL.matches("anything[0].at.all"))
+        );
+    }
+
+    @Test
+    public void testEquality() {
+        assertAll("Assert that projections are equal if their patterns are.",
+            () -> assertEquals(KeyProjection.of(List.of("a", " b ")), KeyProjection.of(List.of("b", "a"))),
+            () -> assertNotEquals(KeyProjection.of(List.of("a")), KeyProjection.ALL)
+        );
+    }
+
+    @Test
+    public void testMalformedPatterns() {
+        assertAll("Assert that malformed patterns are rejected.",
+            () -> assertThrows(IllegalArgumentException.class, () -> KeyProjection.of(List.of(""))),
+            () -> assertThrows(IllegalArgumentException.class, () -> KeyProjection.of(List.of("a.*.b"))),
+            () -> assertThrows(IllegalArgumentException.class, () -> KeyProjection.of(List.of("a[x]"))),
+            () -> assertThrows(IllegalArgumentException.class, () -> KeyProjection.of(List.of("a[0")))
+        );
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author seth@falco.fun (Seth Falco)
+ */
+public class LoadProfileTest {
+
+    @Test
+    public void testSummary() {
+        LoadProfile profile = new LoadProfile("application.yml");
+        profile.begin(LoadProfile.Phase.READ);
+        profile.read(new byte[64]);
+        profile.begin(LoadProfile.Phase.PARSE);
+        profile.parsed(Map.of("application", Map.of("name", "Profiled", "prefixes", List.of(">", "$"))));
+        profile.end();
+
+        String summary = profile.summary(2);
+
+        assertAll("Assert that the summary contains every phase and count.",
+            () -> assertTrue(summary.startsWith("Loaded application.yml in ")),
+            () -> assertTrue(summary.contains("resolve 0.00 ms, read ")),
+            () -> assertTrue(summary.contains(", publish 0.00 ms)")),
+            () -> assertTrue(summary.endsWith(", 64 bytes, 6 nodes, 2 keys.")),
+            () -> assertFalse(summary.contains("from cache"))
+        );
+    }
+
+    @Test
+    public void testCachedUnlessParsed() {
+        LoadProfile profile = new LoadProfile("application.yml");
+        profile.begin(LoadProfile.Phase.READ);
+        profile.read(new byte[64]);
+        profile.end();
+
+        assertTrue(profile.summary(2).contains(" from cache, 64 bytes"));
+    }
+
+    @Test
+    public void testCountStream() throws IOException {
+        LoadProfile profile = new LoadProfile("input-stream");
+        byte[] content = "application:\n  name: Profiled".getBytes(StandardCharsets.UTF_8);
+
+        try (InputStream stream = profile.count(new ByteArrayInputStream(content))) {
+            stream.read();
+            stream.readAllBytes();
+        }
+
+        assertAll("Assert that bytes read from a stream are counted only when enabled.",
+            () -> assertTrue(profile.summary(2).endsWith(", " + content.length + " bytes, 0 nodes, 2 keys.")),
+            () -> assertSame(System.in, LoadProfile.disabled().count(System.in))
+        );
+    }
+
+    @Test
+    public void testEvents() throws IOException {
+        Path path = Files.createTempFile("yaml4deltaspike", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(YamlLoadEvent.class);
+            recording.enable(YamlLoadPhaseEvent.class);
+            recording.start();
+
+            LoadProfile profile = new LoadProfile("application.yml");
+            profile.begin(LoadProfile.Phase.RESOLVE);
+            profile.begin(LoadProfile.Phase.PUBLISH);
+            profile.finish(Map.of("application.name", "Profiled"));
+
+            recording.stop();
+            recording.dump(path);
+        }
+
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(path);
+            List<String> phases = events.stream()
+                .filter((event) -> event.hasField("phase"))
+                .map((event) -> event.getString("phase"))
+                .collect(Collectors.toList());
+
+            RecordedEvent load = events.stream()
+                .filter((event) -> event.hasField("keys"))
+                .findFirst()
+                .orElseThrow();
+
+            assertAll("Assert that an event is committed per phase, and for the whole load.",
+                () -> assertEquals(List.of("resolve", "publish"), phases),
+                () -> assertEquals("application.yml", load.getString("configName")),
+                () -> assertTrue(load.getBoolean("cached")),
+                () -> assertEquals(1, load.getLong("keys"))
+            );
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertSame(LoadProfile.disabled(), LoadProfile.start("application.yml"));
+    }
+}
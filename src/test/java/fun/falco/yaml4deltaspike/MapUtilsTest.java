@@ -18,10 +18,15 @@ package fun.falco.yaml4deltaspike;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.AbstractMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -241,4 +246,217 @@ public class MapUtilsTest {
             () -> assertEquals("Yet Another Amazing App", result.get("application.name"))
         );
     }
+
+    /**
+     * Test that only keys matching the projection are flattened, and that
+     * subtrees that can't match are never visited.
+     *
+     * <pre><code>
+     * application:
+     *   name: Projected App
+     *   prefixes:
+     *     - >
+     *     - $
+     *   messages:
+     *     - source: one
+     *       target: two
+     *     - source: three
+     *       target: four
+     * database:
+     *   host: localhost
+     *   port: 5432
+     * unused: ...
+     * </code></pre>
+     */
+    @Test
+    public void testFlattenWithProjection() {
+        Map<String, Object> application = Map.of(
+            "name", "Projected App",
+            "prefixes", List.of(">", "$"),
+            "messages", List.of(
+                Map.of("source", "one", "target", "two"),
+                Map.of("source", "three", "target", "four")
+            )
+        );
+
+        Map<String, Object> unused = new AbstractMap<>() {
+
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                throw new AssertionError("Unmatched subtrees must not be visited.");
+            }
+        };
+
+        Map<String, Object> map = Map.of(
+            "application", application,
+            "database", Map.of("host", "localhost", "port", 5432),
+            "unused", unused
+        );
+
+        KeyProjection projection = KeyProjection.of(List.of(
+            "application.name",
+            "application.messages[*].source",
+            "database.*"
+        ));
+
+        Map<String, String> result = MapUtils.flattenMapProperties(map, IndexMode.NONE, projection);
+        Map<String, String> indexed = MapUtils.flattenMapProperties(map, IndexMode.MAPS, projection);
+
+        assertAll("Assert that only matching keys are flattened.",
+            () -> assertEquals(4, result.size()),
+            () -> assertEquals("Projected App", result.get("application.name")),
+            () -> assertEquals("one,three", result.get("application.messages.source")),
+            () -> assertEquals("localhost", result.get("database.host")),
+            () -> assertEquals("5432", result.get("database.port")),
+            () -> assertEquals(5, indexed.size()),
+            () -> assertEquals("one", indexed.get("application.messages[0].source")),
+            () -> assertEquals("three", indexed.get("application.messages[1].source"))
+        );
+    }
+
+    /**
+     * Test that keys referenced by kept values are kept, transitively, so the
+     * references still resolve.
+     *
+     * <pre><code>
+     * application:
+     *   url: http://${application.host}:${application.port}/${missing}${bad[x]}
+     *   host: ${application.domain}
+     *   domain: example.org
+     *   port: 80
+     *   unused: value
+     * </code></pre>
+     */
+    @Test
+    public void testFlattenWithProjectionKeepsReferences() {
+        Map<String, Object> application = Map.of(
+            "url", "http://${application.host}:${application.port}/${missing}${bad[x]}",
+            "host", "${application.domain}",
+            "domain", "example.org",
+            "port", 80,
+            "unused", "value"
+        );
+
+        Map<String, Object> map = Map.of("application", application);
+        KeyProjection projection = KeyProjection.of(List.of("application.url"));
+
+        assertAll("Assert that references of kept values are kept in every mode.",
+            () -> assertEquals(4, MapUtils.flattenMapProperties(map, IndexMode.NONE, projection).size()),
+            () -> assertEquals(4, MapUtils.flattenMapProperties(map, IndexMode.FULL, projection).size()),
+            () -> assertEquals(
+                Map.of(
+                    "application.url", "http://${application.host}:${application.port}/${missing}${bad[x]}",
+                    "application.host", "${application.domain}",
+                    "application.domain", "example.org",
+                    "application.port", "80"
+                ),
+                MapUtils.flattenMapProperties(map, IndexMode.MAPS, projection)
+            )
+        );
+    }
+
+    /**
+     * Test that all lists are indexed in full index mode, including lists of
+     * scalars and nested lists.
+     *
+     * <pre><code>
+     * application:
+     *   prefixes:
+     *     - >
+     *     - $
+     *   matrix:
+     *     - [1, 2]
+     *     - [3]
+     *   messages:
+     *     - source: one
+     *     - plain
+     *   empty: []
+     * </code></pre>
+     */
+    @Test
+    public void testFlattenFullyIndexed() {
+        Map<String, Object> application = Map.of(
+            "prefixes", List.of(">", "$"),
+            "matrix", List.of(List.of(1, 2), List.of(3)),
+            "messages", List.of(Map.of("source", "one"), "plain"),
+            "empty", List.of()
+        );
+
+        Map<String, Object> map = Map.of("application", application);
+        Map<String, String> result = MapUtils.flattenMapProperties(map, IndexMode.FULL);
+
+        assertAll("Assert that scalar and nested lists are indexed.",
+            () -> assertTrue(result instanceof IndexedProperties),
+            () -> assertEquals(13, result.size()),
+            () -> assertEquals(13, new HashMap<>(result).size()),
+            () -> assertEquals("2", result.get("application.prefixes.size")),
+            () -> assertEquals(">", result.get("application.prefixes[0]")),
+            () -> assertEquals("$", result.get("application.prefixes[1]")),
+            () -> assertNull(result.get("application.prefixes[2]")),
+            () -> assertNull(result.get("application.prefixes[01]")),
+            () -> assertNull(result.get("application.prefixes")),
+            () -> assertNull(result.get(null)),
+            () -> assertFalse(result.containsKey(null)),
+            () -> assertEquals("2", result.get("application.matrix.size")),
+            () -> assertEquals("2", result.get("application.matrix[0].size")),
+            () -> assertEquals("2", result.get("application.matrix[0][1]")),
+            () -> assertEquals("1", result.get("application.matrix[1].size")),
+            () -> assertEquals("3", result.get("application.matrix[1][0]")),
+            () -> assertEquals("2", result.get("application.messages.size")),
+            () -> assertEquals("one", result.get("application.messages[0].source")),
+            () -> assertEquals("plain", result.get("application.messages[1]")),
+            () -> assertEquals("0", result.get("application.empty.size")),
+            () -> assertEquals(List.of(">", "$"), ((IndexedProperties) result).getList("application.prefixes"))
+        );
+    }
+
+    /**
+     * Test that a pattern naming a list keeps the whole list in every index
+     * mode, for lists of scalars and lists of maps.
+     */
+    @Test
+    public void testFlattenWithListPattern() {
+        Map<String, Object> map = Map.of(
+            "application", Map.of(
+                "name", "Projected App",
+                "prefixes", List.of(">", "$"),
+                "messages", List.of(
+                    Map.of("source", "one", "target", "two"),
+                    Map.of("source", "three", "target", "four")
+                )
+            )
+        );
+
+        KeyProjection projection = KeyProjection.of(List.of("application.prefixes", "application.messages"));
+        Map<String, String> joined = MapUtils.flattenMapProperties(map, IndexMode.NONE, projection);
+        Map<String, String> maps = MapUtils.flattenMapProperties(map, IndexMode.MAPS, projection);
+        Map<String, String> indexed = MapUtils.flattenMapProperties(map, IndexMode.FULL, projection);
+
+        assertAll("Assert that both lists are kept in every mode.",
+            () -> assertEquals(
+                Map.of(
+                    "application.prefixes", ">,$",
+                    "application.messages.source", "one,three",
+                    "application.messages.target", "two,four"
+                ),
+                joined
+            ),
+            () -> assertEquals(
+                Map.of(
+                    "application.prefixes", ">,$",
+                    "application.messages[0].source", "one",
+                    "application.messages[0].target", "two",
+                    "application.messages[1].source", "three",
+                    "application.messages[1].target", "four"
+                ),
+                maps
+            ),
+            () -> assertEquals(8, indexed.size()),
+            () -> assertEquals("2", indexed.get("application.prefixes.size")),
+            () -> assertEquals(">", indexed.get("application.prefixes[0]")),
+            () -> assertEquals("2", indexed.get("application.messages.size")),
+            () -> assertEquals("four", indexed.get("application.messages[1].target")),
+            () -> assertEquals(List.of(">", "$"), ((IndexedProperties) indexed).getList("application.prefixes"))
+        );
+    }
 }
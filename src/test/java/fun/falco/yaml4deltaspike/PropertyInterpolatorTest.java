@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author seth@falco.fun (Seth Falco)
+ */
+public class PropertyInterpolatorTest {
+
+    @Test
+    public void testChainedReferences() {
+        Map<String, String> properties = Map.of(
+            "a", "${b}-${c}",
+            "b", "${c}${c}",
+            "c", "x",
+            "d", "plain"
+        );
+
+        Map<String, String> result = new PropertyInterpolator(properties).getProperties();
+
+        assertAll("Assert that references are resolved regardless of order.",
+            () -> assertEquals(4, result.size()),
+            () -> assertEquals("xx-x", result.get("a")),
+            () -> assertEquals("xx", result.get("b")),
+            () -> assertEquals("x", result.get("c")),
+            () -> assertEquals("plain", result.get("d"))
+        );
+    }
+
+    @Test
+    public void testUnknownReferencesAreKept() {
+        Map<String, String> properties = Map.of(
+            "url", "http://${host}:${port}",
+            "port", "8080",
+            "broken", "${port"
+        );
+
+        Map<String, String> result = new PropertyInterpolator(properties).getProperties();
+
+        assertAll("Assert that references to missing keys are left for DeltaSpike.",
+            () -> assertEquals("http://${host}:8080", result.get("url")),
+            () -> assertEquals("${port", result.get("broken"))
+        );
+    }
+
+    @Test
+    public void testCyclesAreNotResolved() {
+        Map<String, String> properties = Map.of(
+            "a", "${b}",
+            "b", "${a}",
+            "c", "${a}!",
+            "d", "${d}"
+        );
+
+        Map<String, String> result = new PropertyInterpolator(properties).getProperties();
+
+        assertAll("Assert that keys in or depending on a cycle are left as is.",
+            () -> assertEquals("${b}", result.get("a")),
+            () -> assertEquals("${a}", result.get("b")),
+            () -> assertEquals("${a}!", result.get("c")),
+            () -> assertEquals("${d}", result.get("d"))
+        );
+    }
+
+    @Test
+    public void testUpdateOnlyResolvesDependents() {
+        PropertyInterpolator interpolator = new PropertyInterpolator(Map.of(
+            "host", "localhost",
+            "url", "http://${host}",
+            "name", "App",
+            "title", "${name}"
+        ));
+
+        Set<String> changed = interpolator.update(Map.of(
+            "host", "example.org",
+            "url", "http://${host}",
+            "name", "App",
+            "title", "${name}",
+            "port", "80"
+        ));
+
+        Map<String, String> result = interpolator.getProperties();
+
+        assertAll("Assert that only changed keys and their dependents are reported.",
+            () -> assertEquals(Set.of("host", "url", "port"), changed),
+            () -> assertEquals("http://example.org", result.get("url")),
+            () -> assertEquals("App", result.get("title"))
+        );
+    }
+
+    @Test
+    public void testUpdateWithRemovedReference() {
+        PropertyInterpolator interpolator = new PropertyInterpolator(Map.of(
+            "host", "localhost",
+            "url", "http://${host}"
+        ));
+
+        Set<String> changed = interpolator.update(Map.of("url", "http://${host}"));
+
+        assertAll("Assert that removing a referenced key unresolves its dependents.",
+            () -> assertEquals(Set.of("host", "url"), changed),
+            () -> assertEquals(Map.of("url", "http://${host}"), interpolator.getProperties()),
+            () -> assertTrue(interpolator.update(Map.of("url", "http://${host}")).isEmpty())
+        );
+    }
+
+    @Test
+    public void testUpdateWithSamePropertiesIsSkipped() {
+        AtomicInteger iterations = new AtomicInteger();
+        Map<String, String> values = Map.of("host", "localhost", "url", "http://${host}");
+
+        Map<String, String> properties = new AbstractMap<>() {
+
+            @Override
+            public String get(Object key) {
+                return values.get(key);
+            }
+
+            @Override
+            public Set<Entry<String, String>> entrySet() {
+                iterations.incrementAndGet();
+                return values.entrySet();
+            }
+        };
+
+        PropertyInterpolator interpolator = new PropertyInterpolator(properties);
+        Map<String, String> result = interpolator.getProperties();
+        iterations.set(0);
+
+        assertAll("Assert that updating with the same instance doesn't compare every key.",
+            () -> assertTrue(interpolator.update(properties).isEmpty()),
+            () -> assertEquals(0, iterations.get()),
+            () -> assertSame(result, interpolator.getProperties())
+        );
+    }
+
+    @Test
+    public void testPropertiesWithoutReferencesAreShared() {
+        Map<String, Object> yaml = Map.of(
+            "name", "App",
+            "prefixes", List.of(">", "$")
+        );
+
+        Map<String, String> properties = MapUtils.flattenMapProperties(yaml, IndexMode.FULL, KeyProjection.ALL);
+        PropertyInterpolator interpolator = new PropertyInterpolator(properties);
+
+        assertAll("Assert that properties without references aren't copied.",
+            () -> assertTrue(properties instanceof IndexedProperties),
+            () -> assertSame(properties, interpolator.getProperties())
+        );
+    }
+
+    @Test
+    public void testOnlyResolvedValuesAreStored() {
+        Map<String, Object> yaml = Map.of(
+            "name", "App",
+            "title", "${name}!",
+            "prefixes", List.of(">", "$")
+        );
+
+        Map<String, String> properties = MapUtils.flattenMapProperties(yaml, IndexMode.FULL, KeyProjection.ALL);
+        Map<String, String> result = new PropertyInterpolator(properties).getProperties();
+
+        assertAll("Assert that resolved values are layered over the given properties.",
+            () -> assertEquals(properties.size(), result.size()),
+            () -> assertEquals("App!", result.get("title")),
+            () -> assertEquals("$", result.get("prefixes[1]")),
+            () -> assertEquals("2", result.get("prefixes.size")),
+            () -> assertEquals(Map.of("name", "App", "title", "App!", "prefixes[0]", ">", "prefixes[1]", "$", "prefixes.size", "2"), result),
+            () -> assertNull(result.get(null)),
+            () -> assertThrows(UnsupportedOperationException.class, () -> result.put("key", "value"))
+        );
+    }
+}
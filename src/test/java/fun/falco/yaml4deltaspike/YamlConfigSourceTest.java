@@ -20,14 +20,25 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * @author seth@falco.fun (Seth Falco)
@@ -46,6 +57,18 @@ public class YamlConfigSourceTest {
         assertDoesNotThrow(() -> new YamlConfigSource());
     }
 
+    @Test
+    public void testNullKey() {
+        YamlConfigSource missing = new YamlConfigSource();
+        YamlConfigSource cached = new YamlConfigSource("cache.yml");
+
+        assertAll("Test that looking up a null key returns null",
+            () -> assertNull(missing.getPropertyValue(null)),
+            () -> assertNull(cached.getPropertyValue(null)),
+            () -> assertNull(cached.getProperties().get(null))
+        );
+    }
+
     @Test
     public void testThatInputStreamWorks() throws IOException {
         String yaml = "application:\n  name: Testing";
@@ -76,8 +99,168 @@ public class YamlConfigSourceTest {
         }
     }
 
+    @Test
+    public void testFullyIndexedInputStream() throws IOException {
+        String yaml = "application:\n  prefixes:\n    - \">\"\n    - $";
+
+        try (InputStream stream = new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8))) {
+            YamlConfigSource config = new YamlConfigSource(stream, "custom-stream", IndexMode.FULL);
+
+            assertAll("Test that a stream can be read with any IndexMode",
+                () -> assertEquals(IndexMode.FULL, config.getIndexMode()),
+                () -> assertEquals("2", config.getPropertyValue("application.prefixes.size")),
+                () -> assertEquals(List.of(">", "$"), config.getList("application.prefixes"))
+            );
+        }
+    }
+
     @Test
     public void testWithNullInputStream() {
         assertDoesNotThrow(() -> new YamlConfigSource((InputStream) null));
     }
+
+    @Test
+    public void testInterpolated() {
+        YamlConfigSource config = new YamlConfigSource("interpolation.yml", false, true);
+
+        assertAll("Test that references are resolved when the configuration is loaded",
+            () -> assertTrue(config.isInterpolated()),
+            () -> assertEquals("Interpolated v2", config.getPropertyValue("application.title")),
+            () -> assertEquals("http://${application.host}", config.getPropertyValue("application.url")),
+            () -> assertTrue(config.reload().isEmpty())
+        );
+    }
+
+    @Test
+    public void testNotInterpolatedByDefault() {
+        YamlConfigSource config = new YamlConfigSource("interpolation.yml");
+
+        assertAll("Test that references are left for DeltaSpike by default",
+            () -> assertFalse(config.isInterpolated()),
+            () -> assertEquals(
+                "${application.name} v${application.version}",
+                config.getPropertyValue("application.title")
+            )
+        );
+    }
+
+    @Test
+    public void testReloadInputStream() throws IOException {
+        String yaml = "application:\n  name: Testing";
+
+        try (InputStream stream = new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8))) {
+            YamlConfigSource config = new YamlConfigSource(stream);
+            assertThrows(UnsupportedOperationException.class, config::reload);
+        }
+    }
+
+    @Test
+    public void testReloadReportsChanges(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("reload.yml");
+        URL url = file.toUri().toURL();
+
+        try {
+            Files.writeString(file, "application:\n  name: Before\n");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+
+            YamlConfigSource config = new YamlConfigSource(url, IndexMode.NONE, false);
+            List<Set<String>> reported = new ArrayList<>();
+            config.setOnAttributeChange(reported::add);
+
+            Set<String> unchanged = config.reload();
+
+            Files.writeString(file, "application:\n  name: After\n");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(2000));
+
+            Set<String> changed = config.reload();
+
+            assertAll("Test that only reloads with changes are reported to DeltaSpike",
+                () -> assertTrue(unchanged.isEmpty()),
+                () -> assertEquals(Set.of("application.name"), changed),
+                () -> assertEquals(List.of(changed), reported),
+                () -> assertEquals("After", config.getPropertyValue("application.name"))
+            );
+        } finally {
+            YamlParseCache.getInstance().invalidate(url);
+        }
+    }
+
+    @Test
+    public void testProjected() {
+        YamlConfigSource config = new YamlConfigSource(
+            "interpolation.yml",
+            false,
+            true,
+            List.of("application.title", "application.name", "application.version")
+        );
+
+        assertAll("Test that only the declared keys are kept",
+            () -> assertEquals(3, config.getProperties().size()),
+            () -> assertEquals("Interpolated v2", config.getPropertyValue("application.title")),
+            () -> assertNull(config.getPropertyValue("application.url"))
+        );
+    }
+
+    @Test
+    public void testProjectedKeepsReferences() {
+        YamlConfigSource config = new YamlConfigSource("interpolation.yml", false, false, List.of("application.title"));
+
+        assertAll("Test that keys referenced by kept properties are kept for DeltaSpike to resolve",
+            () -> assertEquals("${application.name} v${application.version}", config.getPropertyValue("application.title")),
+            () -> assertEquals("Interpolated", config.getPropertyValue("application.name")),
+            () -> assertEquals("2", config.getPropertyValue("application.version")),
+            () -> assertNull(config.getPropertyValue("application.url"))
+        );
+    }
+
+    @Test
+    public void testFullyIndexed() {
+        YamlConfigSource config = new YamlConfigSource("cache.yml", IndexMode.FULL);
+
+        assertAll("Test that scalar lists are indexed, and can be read as a list",
+            () -> assertTrue(config.isIndexed()),
+            () -> assertEquals(IndexMode.FULL, config.getIndexMode()),
+            () -> assertEquals("2", config.getPropertyValue("application.prefixes.size")),
+            () -> assertEquals("$", config.getPropertyValue("application.prefixes[1]")),
+            () -> assertEquals("three", config.getPropertyValue("application.messages[1].source")),
+            () -> assertEquals(List.of(">", "$"), config.getList("application.prefixes")),
+            () -> assertNull(config.getList("application.name")),
+            () -> assertNull(config.getPropertyValue(null))
+        );
+    }
+
+    @Test
+    public void testMapWithSizeKeyIsNotAList() {
+        for (IndexMode mode : IndexMode.values()) {
+            YamlConfigSource config = new YamlConfigSource("size.yml", mode);
+
+            assertAll("Test that a size key in a map is never read as the length of a list with " + mode,
+                () -> assertEquals("10", config.getPropertyValue("pool.size")),
+                () -> assertNull(config.getList("pool")),
+                () -> assertNull(config.getList("negative")),
+                () -> assertNull(config.getList("huge"))
+            );
+        }
+    }
+
+    @Test
+    public void testGetListOnlyReadsFullyIndexedLists() {
+        YamlConfigSource maps = new YamlConfigSource("size.yml", IndexMode.MAPS);
+        YamlConfigSource full = new YamlConfigSource("size.yml", IndexMode.FULL);
+
+        assertAll("Test that only lists produced by IndexMode.FULL are read, including lists of maps",
+            () -> assertEquals("two", maps.getPropertyValue("application.messages[1].source")),
+            () -> assertNull(maps.getList("application.messages")),
+            () -> assertEquals(Arrays.asList(null, null), full.getList("application.messages")),
+            () -> assertEquals(List.of("${application.name}!", "plain"), full.getList("application.titles"))
+        );
+    }
+
+    @Test
+    public void testGetListInterpolated() {
+        List<String> keys = List.of("application.titles");
+        YamlConfigSource config = new YamlConfigSource("size.yml", IndexMode.FULL, true, keys);
+
+        assertEquals(List.of("Sized!", "plain"), config.getList("application.titles"));
+    }
 }
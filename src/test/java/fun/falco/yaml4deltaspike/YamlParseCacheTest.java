@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020-2025 Seth Falco and YAML4DeltaSpike Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fun.falco.yaml4deltaspike;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author seth@falco.fun (Seth Falco)
+ */
+public class YamlParseCacheTest {
+
+    @Test
+    public void testSameResourceIsShared() {
+        YamlParseCache cache = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+        Map<String, String> first = cache.get("cache.yml", false);
+        Map<String, String> second = cache.get("cache.yml", false);
+
+        assertAll("Assert that the flattened properties are only created once.",
+            () -> assertSame(first, second),
+            () -> assertEquals(1, cache.size()),
+            () -> assertEquals("Cached", first.get("application.name")),
+            () -> assertNull(first.get(null)),
+            () -> assertThrows(UnsupportedOperationException.class, () -> first.put("key", "value"))
+        );
+    }
+
+    @Test
+    public void testIndexedVariantsAreSeparate() {
+        YamlParseCache cache = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+        Map<String, String> lists = cache.get("cache.yml", false);
+        Map<String, String> indexed = cache.get("cache.yml", true);
+
+        assertAll("Assert that both variants share a single cached resource.",
+            () -> assertNotSame(lists, indexed),
+            () -> assertEquals(1, cache.size()),
+            () -> assertEquals("one,three", lists.get("application.messages.source")),
+            () -> assertEquals("one", indexed.get("application.messages[0].source"))
+        );
+    }
+
+    @Test
+    public void testInvalidate() {
+        YamlParseCache cache = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+        Map<String, String> first = cache.get("cache.yml", false);
+
+        assertTrue(cache.invalidate("cache.yml"));
+        assertFalse(cache.invalidate("cache.yml"));
+
+        Map<String, String> second = cache.get("cache.yml", false);
+
+        assertAll("Assert that invalidated resources are read again.",
+            () -> assertNotSame(first, second),
+            () -> assertEquals(first, second)
+        );
+    }
+
+    @Test
+    public void testEviction() {
+        YamlParseCache cache = new YamlParseCache(0);
+        Map<String, String> properties = cache.get("cache.yml", false);
+
+        assertAll("Assert that resources larger than the cache are still returned, but not retained.",
+            () -> assertEquals("Cached", properties.get("application.name")),
+            () -> assertEquals(0, cache.size()),
+            () -> assertEquals(0, cache.getEstimatedBytes())
+        );
+    }
+
+    @Test
+    public void testProjectedVariantsDoNotRetainTree() {
+        KeyProjection projection = KeyProjection.of(List.of("application.name"));
+        YamlParseCache projected = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+        YamlParseCache full = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+
+        Map<String, String> name = projected.get("cache.yml", IndexMode.NONE, projection);
+        long projectedBytes = projected.getEstimatedBytes();
+        Map<String, String> all = full.get("cache.yml", IndexMode.NONE, KeyProjection.ALL);
+
+        assertAll("Assert that only projected properties are retained, and other variants are still available.",
+            () -> assertEquals(Map.of("application.name", "Cached"), name),
+            () -> assertTrue(projectedBytes < full.getEstimatedBytes()),
+            () -> assertEquals(all, projected.get("cache.yml", IndexMode.NONE, KeyProjection.ALL)),
+            () -> assertSame(name, projected.get("cache.yml", IndexMode.NONE, projection)),
+            () -> assertEquals(1, projected.size())
+        );
+    }
+
+    @Test
+    public void testMissingResource() {
+        YamlParseCache cache = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+
+        assertAll("Assert that missing resources are treated as empty.",
+            () -> assertTrue(cache.get("missing.yml", false).isEmpty()),
+            () -> assertNull(cache.get("missing.yml", false).get(null)),
+            () -> assertEquals(0, cache.size())
+        );
+    }
+
+    @Test
+    public void testConfigSourcesShareProperties() {
+        YamlConfigSource first = new YamlConfigSource("cache.yml");
+        YamlConfigSource second = new YamlConfigSource("cache.yml");
+
+        assertSame(first.getProperties(), second.getProperties());
+    }
+
+    @Test
+    public void testConcurrentFlattensShareProperties() throws Exception {
+        YamlParseCache cache = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+        cache.get("cache.yml", false);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Map<String, String>>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.get("cache.yml", true)));
+            }
+
+            Map<String, String> first = futures.get(0).get();
+
+            for (Future<Map<String, String>> future : futures) {
+                assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConnectionsAreClosed() throws IOException {
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+
+        URLStreamHandler handler = new URLStreamHandler() {
+
+            @Override
+            protected URLConnection openConnection(URL url) {
+                return new URLConnection(url) {
+
+                    /** Opened on connect, like connections to files. */
+                    private InputStream inputStream;
+
+                    @Override
+                    public void connect() {
+                        if (connected) {
+                            return;
+                        }
+
+                        connected = true;
+                        opened.incrementAndGet();
+
+                        inputStream = new ByteArrayInputStream("application:\n  name: Streamed\n".getBytes(StandardCharsets.UTF_8)) {
+
+                            @Override
+                            public void close() {
+                                closed.incrementAndGet();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public long getLastModified() {
+                        connect();
+                        return 1;
+                    }
+
+                    @Override
+                    public InputStream getInputStream() {
+                        connect();
+                        return inputStream;
+                    }
+                };
+            }
+        };
+
+        YamlParseCache cache = new YamlParseCache(YamlParseCache.DEFAULT_MAX_BYTES);
+        URL url = new URL(null, "test:cache.yml", handler);
+        Map<String, String> first = cache.get(url, false);
+        Map<String, String> second = cache.get(url, false);
+
+        assertAll("Assert that the connection is closed on both a miss and a hit.",
+            () -> assertSame(first, second),
+            () -> assertEquals("Streamed", first.get("application.name")),
+            () -> assertEquals(2, opened.get()),
+            () -> assertEquals(2, closed.get())
+        );
+    }
+}